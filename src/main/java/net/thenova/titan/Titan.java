@@ -5,11 +5,14 @@ import de.arraying.lumberjack.LLogLevel;
 import de.arraying.lumberjack.LLogger;
 import de.arraying.lumberjack.LLoggerBuilder;
 import lombok.Getter;
+import net.thenova.titan.libraries.Property;
+import net.thenova.titan.module.ModuleArchive;
 import net.thenova.titan.module.ModuleManager;
 import net.thenova.titan.module.module.Module;
 import net.thenova.titan.module.module.expansion.ExpansionLoader;
 
 import java.io.File;
+import java.util.Arrays;
 import java.util.Map;
 import java.util.concurrent.TimeUnit;
 
@@ -92,12 +95,46 @@ public enum Titan {
 
     /**
      * The main method.
+     * '--cds-train' performs a training run for a class data sharing archive, see train().
      * @param args Startup params
      */
     public static void main(final String[] args) {
         Titan.INSTANCE.init(Type.STANDALONE, new File("."));
 
         ModuleManager.INSTANCE.init(Type.STANDALONE);
+
+        if(Arrays.asList(args).contains("--cds-train")) {
+            Titan.INSTANCE.train();
+        }
+    }
+
+    /**
+     * Run Titan once to record the classes loaded by the core and by each module, then exit.
+     * Argument files are written to 'cds' in the data root, the JVM started with 'train.args' writes the archive
+     * on exit and later runs started with 'run.args' map those classes from it.
+     * The run is held for 'titan.cds.duration' milliseconds after enabling so modules can reach their steady state.
+     */
+    private void train() {
+        final ModuleArchive archive = new ModuleArchive(new File(this.dataRoot, "cds"));
+        archive.writeArguments();
+        if(!archive.isArchiving()) {
+            this.logger.info("[Titan] - Training run was not started with '@%s', no archive will be written",
+                    new File(archive.getDirectory(), "train.args").getPath());
+        }
+
+        this.enable();
+        try {
+            Thread.sleep(this.property("titan.cds.duration").defaulting(0).asLong());
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+
+        archive.record(ModuleManager.INSTANCE.getClassLoaders());
+        this.shutdown();
+
+        this.logger.info("[Titan] - Training run complete, start with '@%s' to use the archive",
+                new File(archive.getDirectory(), "run.args").getPath());
+        System.exit(0);
     }
 
     /**
@@ -137,6 +174,16 @@ public enum Titan {
         this.logger.info("[Titan] - Data root has been set to '%s'", this.dataRoot.getAbsolutePath());
     }
 
+    /**
+     * Fetch a startup option, these are provided as JVM system properties (-Dkey=value)
+     *
+     * @param key Property key
+     * @return Property of the value, empty if not set
+     */
+    public Property property(final String key) {
+        return new Property(System.getProperty(key));
+    }
+
     /**
      * Handle post loading, enabling full functionality
      */
@@ -0,0 +1,205 @@
+package net.thenova.titan.event;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.thenova.titan.Titan;
+import net.thenova.titan.module.ModuleClassLoader;
+import net.thenova.titan.module.ModuleManager;
+import net.thenova.titan.module.module.Module;
+import net.thenova.titan.module.module.ModuleInstance;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public enum EventBus {
+    INSTANCE;
+
+    private static final Subscription<?>[] EMPTY = new Subscription<?>[0];
+
+    // Event type -> subscriptions to exactly that type, arrays are replaced on change and never modified
+    private final Map<Class<?>, Subscription<?>[]> subscriptions = new ConcurrentHashMap<>();
+    // Event class -> subscriptions to it and all its supertypes, replaced whenever subscriptions change
+    private volatile ClassValue<Subscription<?>[]> resolved = this.createResolved();
+
+    private ExecutorService executor;
+
+    /**
+     * Subscribe to events of a type and its subtypes, delivered on the publishing thread
+     *
+     * @param module Module owning the subscription, it is removed when the module shuts down
+     * @param type Type of event
+     * @param handler Handler of the events
+     * @return Subscription
+     */
+    public <T> Subscription<T> subscribe(final Module module, final Class<T> type, final Consumer<? super T> handler) {
+        return this.add(new Subscription<>(this.getOwner(module), type, handler, null, 0));
+    }
+
+    /**
+     * Subscribe to events of a type and its subtypes, delivered in order on the event threads.
+     * Each subscriber has its own queue of 'titan.event.queue' events, events published while it is full are dropped.
+     *
+     * @param module Module owning the subscription, it is removed when the module shuts down
+     * @param type Type of event
+     * @param handler Handler of the events
+     * @return Subscription
+     */
+    public <T> Subscription<T> subscribeAsync(final Module module, final Class<T> type, final Consumer<? super T> handler) {
+        return this.add(new Subscription<>(this.getOwner(module), type, handler, this.getExecutor(),
+                Titan.INSTANCE.property("titan.event.queue").defaulting(65536).asInt()));
+    }
+
+    /**
+     * Publish an event to every subscriber of its class or any of its supertypes
+     *
+     * @param event Event to be published
+     */
+    public void publish(final Object event) {
+        for(final Subscription<?> subscription : this.resolved.get(event.getClass())) {
+            subscription.deliver(event);
+        }
+    }
+
+    /**
+     * @param type Type of event
+     * @return Whether anything would receive an event of the type, allowing publishers to skip building events
+     */
+    public boolean hasSubscribers(final Class<?> type) {
+        return this.resolved.get(type).length != 0;
+    }
+
+    /**
+     * Remove a subscription
+     *
+     * @param subscription Subscription to be removed
+     */
+    public void unsubscribe(final Subscription<?> subscription) {
+        this.remove(existing -> existing == subscription);
+    }
+
+    /**
+     * Remove every subscription owned by a module
+     *
+     * @param instance Module which is shutting down
+     */
+    public void unsubscribe(final ModuleInstance instance) {
+        this.remove(subscription -> subscription.getOwner() == instance);
+    }
+
+    /**
+     * Remove every subscription referencing a released class loader, whether through its owner, event type or handler
+     *
+     * @param loader Loader being released
+     */
+    public void release(final ModuleClassLoader loader) {
+        this.remove(subscription -> (subscription.getOwner() != null && subscription.getOwner().getLoader() == loader)
+                || subscription.getType().getClassLoader() == loader
+                || subscription.getHandler().getClass().getClassLoader() == loader);
+    }
+
+    private <T> Subscription<T> add(final Subscription<T> subscription) {
+        this.subscriptions.compute(subscription.getType(), (type, existing) -> {
+            final Subscription<?>[] current = existing == null ? EMPTY : existing;
+            final Subscription<?>[] updated = Arrays.copyOf(current, current.length + 1);
+            updated[current.length] = subscription;
+            return updated;
+        });
+
+        this.resolved = this.createResolved();
+        return subscription;
+    }
+
+    private void remove(final Predicate<Subscription<?>> filter) {
+        final List<Subscription<?>> removed = new ArrayList<>();
+        this.subscriptions.keySet().forEach(type -> this.subscriptions.computeIfPresent(type, (key, existing) -> {
+            final Subscription<?>[] kept = Arrays.stream(existing)
+                    .filter(subscription -> {
+                        if(filter.test(subscription)) {
+                            removed.add(subscription);
+                            return false;
+                        }
+                        return true;
+                    })
+                    .toArray(Subscription<?>[]::new);
+            return kept.length == 0 ? null : kept;
+        }));
+
+        if(!removed.isEmpty()) {
+            this.resolved = this.createResolved();
+            removed.forEach(Subscription::cancel);
+        }
+    }
+
+    private ClassValue<Subscription<?>[]> createResolved() {
+        return new ClassValue<Subscription<?>[]>() {
+            @Override
+            protected Subscription<?>[] computeValue(final Class<?> type) {
+                final List<Subscription<?>> matched = new ArrayList<>();
+                EventBus.getTypes(type).forEach(supertype -> {
+                    final Subscription<?>[] direct = EventBus.this.subscriptions.get(supertype);
+                    if(direct != null) {
+                        matched.addAll(Arrays.asList(direct));
+                    }
+                });
+                return matched.isEmpty() ? EMPTY : matched.toArray(EMPTY);
+            }
+        };
+    }
+
+    /**
+     * @param type Event class
+     * @return The class followed by all its superclasses and interfaces, most specific first
+     */
+    private static Set<Class<?>> getTypes(final Class<?> type) {
+        final Set<Class<?>> types = new LinkedHashSet<>();
+        final Deque<Class<?>> queue = new ArrayDeque<>();
+        queue.add(type);
+
+        while(!queue.isEmpty()) {
+            final Class<?> current = queue.poll();
+            if(!types.add(current)) {
+                continue;
+            }
+
+            if(current.getSuperclass() != null) {
+                queue.add(current.getSuperclass());
+            }
+            queue.addAll(Arrays.asList(current.getInterfaces()));
+        }
+        return types;
+    }
+
+    private ModuleInstance getOwner(final Module module) {
+        return module == null ? null : ModuleManager.INSTANCE.getInstance(module);
+    }
+
+    private synchronized ExecutorService getExecutor() {
+        if(this.executor == null) {
+            this.executor = Executors.newFixedThreadPool(
+                    Titan.INSTANCE.property("titan.event.threads").defaulting(Runtime.getRuntime().availableProcessors()).asInt(),
+                    new ThreadFactoryBuilder()
+                            .setNameFormat("titan-event-%d")
+                            .setDaemon(true)
+                            .build());
+        }
+        return this.executor;
+    }
+}
@@ -0,0 +1,153 @@
+package net.thenova.titan.event;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import net.thenova.titan.Titan;
+import net.thenova.titan.module.module.ModuleInstance;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+@Getter
+public final class Subscription<T> {
+
+    // Events an asynchronous subscriber drains per task before yielding its thread to other subscribers
+    private static final int DRAIN_BATCH = 256;
+
+    private final ModuleInstance owner;
+    private final Class<T> type;
+    @Getter(AccessLevel.NONE) private final Consumer<? super T> handler;
+
+    // Only set for asynchronous subscribers, events are queued and delivered in order on the executor
+    @Getter(AccessLevel.NONE) private final Executor executor;
+    @Getter(AccessLevel.NONE) private final Queue<Object> queue;
+    @Getter(AccessLevel.NONE) private final int capacity;
+    @Getter(AccessLevel.NONE) private final AtomicInteger size = new AtomicInteger();
+    @Getter(AccessLevel.NONE) private final AtomicBoolean draining = new AtomicBoolean();
+    @Getter(AccessLevel.NONE) private final LongAdder dropped = new LongAdder();
+
+    private volatile boolean active = true;
+
+    Subscription(final ModuleInstance owner, final Class<T> type, final Consumer<? super T> handler,
+                 final Executor executor, final int capacity) {
+        this.owner = owner;
+        this.type = type;
+        this.handler = handler;
+        this.executor = executor;
+        this.queue = executor == null ? null : new ConcurrentLinkedQueue<>();
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return Whether events are delivered on the event threads rather than the publishing thread
+     */
+    public boolean isAsync() {
+        return this.executor != null;
+    }
+
+    /**
+     * @return Events not delivered as the subscribers queue was full
+     */
+    public long getDropped() {
+        return this.dropped.sum();
+    }
+
+    /**
+     * Stop receiving events, queued events are discarded
+     */
+    public void unsubscribe() {
+        EventBus.INSTANCE.unsubscribe(this);
+    }
+
+    /**
+     * @return Handler of the subscription, used to find subscriptions held by a released class loader
+     */
+    Object getHandler() {
+        return this.handler;
+    }
+
+    /**
+     * Mark the subscription as removed, called by the bus once it is no longer dispatched to
+     */
+    void cancel() {
+        this.active = false;
+        if(this.queue != null) {
+            this.queue.clear();
+        }
+    }
+
+    void deliver(final Object event) {
+        if(this.queue == null) {
+            this.invoke(event);
+            return;
+        }
+
+        if(this.size.incrementAndGet() > this.capacity) {
+            this.size.decrementAndGet();
+            this.dropped.increment();
+            return;
+        }
+
+        this.queue.add(event);
+        this.schedule();
+    }
+
+    private void schedule() {
+        if(this.active && this.draining.compareAndSet(false, true)) {
+            this.executor.execute(this::drain);
+        }
+    }
+
+    private void drain() {
+        try {
+            Object event;
+            int delivered = 0;
+            while(this.active && delivered++ < DRAIN_BATCH && (event = this.queue.poll()) != null) {
+                this.size.decrementAndGet();
+                this.invoke(event);
+            }
+        } finally {
+            this.draining.set(false);
+            if(!this.queue.isEmpty()) {
+                this.schedule();
+            }
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    private void invoke(final Object event) {
+        if(!this.active) {
+            return;
+        }
+
+        try {
+            this.handler.accept((T) event);
+        } catch (final Throwable ex) {
+            Titan.INSTANCE.getLogger().info("[EventBus] - Subscriber of '%s' owned by '%s' failed handling an event\n%s",
+                    this.type.getName(),
+                    this.owner == null ? "none" : this.owner.getName(),
+                    ExceptionUtils.getStackTrace(ex));
+        }
+    }
+}
@@ -4,6 +4,7 @@ import de.arraying.kotys.JSON;
 import de.arraying.kotys.JSONDefaultMarshalFormat;
 import lombok.Getter;
 import net.thenova.titan.Titan;
+import net.thenova.titan.module.ModuleClassLoader;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
 import java.io.*;
@@ -154,7 +155,8 @@ public final class JSONFile {
     }
 
     /**
-     * Return a file from a loaded jars resources
+     * Return a file from a loaded jars resources.
+     * Module loaders are read through their resource index, avoiding reopening the jar on each call.
      *
      * @param loader Resource location
      * @param filename - Resource name
@@ -162,6 +164,13 @@ public final class JSONFile {
      */
     private InputStream getResource(final ClassLoader loader, final String filename) {
         try {
+            if(loader instanceof ModuleClassLoader) {
+                final byte[] bytes = ((ModuleClassLoader) loader).getResourceBytes(filename);
+                if(bytes != null) {
+                    return new ByteArrayInputStream(bytes);
+                }
+            }
+
             final URL url = loader.getResource(filename);
             if (url == null) {
                 Titan.INSTANCE.getLogger().info("[JSONFile] - Failed to retrieve resource '%s', this could not be created.",
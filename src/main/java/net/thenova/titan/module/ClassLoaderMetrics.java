@@ -0,0 +1,171 @@
+package net.thenova.titan.module;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public final class ClassLoaderMetrics {
+
+    // Innermost findClass call of the current thread, across all loaders
+    private static final ThreadLocal<Frame> CURRENT = new ThreadLocal<>();
+
+    private final LongAdder defined = new LongAdder();
+    private final LongAdder cacheHits = new LongAdder();
+    private final LongAdder globalHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+
+    private final LongAdder calls = new LongAdder();
+    private final LongAdder nanos = new LongAdder();
+
+    // Bucket i counts findClass calls taking less than 2^(i + 1) nanoseconds
+    private final AtomicLongArray buckets = new AtomicLongArray(Long.SIZE);
+
+    void defined() {
+        this.defined.increment();
+    }
+
+    void cacheHit() {
+        this.cacheHits.increment();
+    }
+
+    void globalHit() {
+        this.globalHits.increment();
+    }
+
+    void miss() {
+        this.misses.increment();
+    }
+
+    /**
+     * Start timing a findClass call, nested calls made before it is stopped are not counted towards it
+     *
+     * @return Frame to be passed to stop
+     */
+    static Frame start() {
+        final Frame frame = new Frame(CURRENT.get(), System.nanoTime());
+        CURRENT.set(frame);
+        return frame;
+    }
+
+    /**
+     * Record the time of a findClass call, excluding nested calls such as other modules resolving the class
+     * or supertypes loaded while defining it, those are recorded by their own loaders
+     *
+     * @param frame Frame returned by start
+     */
+    void stop(final Frame frame) {
+        final long took = System.nanoTime() - frame.start;
+        this.time(took - frame.child);
+
+        if(frame.parent != null) {
+            frame.parent.child += took;
+        }
+        CURRENT.set(frame.parent);
+    }
+
+    /**
+     * Record the time of a single findClass call
+     *
+     * @param time Nanoseconds taken
+     */
+    void time(final long time) {
+        final long value = Math.max(1, time);
+
+        this.calls.increment();
+        this.nanos.add(value);
+        this.buckets.incrementAndGet(Long.SIZE - 1 - Long.numberOfLeadingZeros(value));
+    }
+
+    /**
+     * @return Classes defined from the loaders own jar
+     */
+    public long getDefined() {
+        return this.defined.sum();
+    }
+
+    /**
+     * @return Lookups answered from the loaders class cache
+     */
+    public long getCacheHits() {
+        return this.cacheHits.sum();
+    }
+
+    /**
+     * @return Lookups answered by another module through getClassByName
+     */
+    public long getGlobalHits() {
+        return this.globalHits.sum();
+    }
+
+    /**
+     * @return Lookups which could not find the class
+     */
+    public long getMisses() {
+        return this.misses.sum();
+    }
+
+    /**
+     * @return Number of findClass calls
+     */
+    public long getCalls() {
+        return this.calls.sum();
+    }
+
+    /**
+     * @return Total time spent in findClass in milliseconds, nested lookups are only counted by their own loader
+     */
+    public double getTotalMillis() {
+        return this.nanos.sum() / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+
+    /**
+     * The 99th percentile of findClass time, accurate to the power of two bucket it falls in
+     *
+     * @return Upper bound of the 99th percentile in microseconds
+     */
+    public double getP99Micros() {
+        final long calls = this.getCalls();
+        if(calls == 0) {
+            return 0;
+        }
+
+        final long target = (long) Math.ceil(calls * 0.99);
+        long seen = 0;
+        for(int i = 0; i < this.buckets.length(); i++) {
+            seen += this.buckets.get(i);
+            if(seen >= target) {
+                return (2L << i) / (double) TimeUnit.MICROSECONDS.toNanos(1);
+            }
+        }
+        return Long.MAX_VALUE / (double) TimeUnit.MICROSECONDS.toNanos(1);
+    }
+
+    static final class Frame {
+
+        private final Frame parent;
+        private final long start;
+
+        // Time of nested calls, already recorded by their own loaders
+        private long child;
+
+        private Frame(final Frame parent, final long start) {
+            this.parent = parent;
+            this.start = start;
+        }
+    }
+}
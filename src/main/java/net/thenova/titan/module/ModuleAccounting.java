@@ -0,0 +1,239 @@
+package net.thenova.titan.module;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.arraying.lumberjack.LLogger;
+import net.thenova.titan.module.module.ModuleInstance;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public final class ModuleAccounting {
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+    // Allocation counters are a HotSpot extension of ThreadMXBean, null when the JVM does not provide them
+    private final com.sun.management.ThreadMXBean allocations;
+    private final boolean cpu;
+
+    // Module name -> usage, kept across reloads like timings
+    private final Map<String, Usage> usage = new ConcurrentHashMap<>();
+    // Innermost measurement of the current thread, nested measurements are not counted twice
+    private final ThreadLocal<Frame> current = new ThreadLocal<>();
+
+    private ScheduledExecutorService reporter;
+
+    ModuleAccounting() {
+        this.cpu = this.threads.isThreadCpuTimeSupported();
+        if(this.cpu && !this.threads.isThreadCpuTimeEnabled()) {
+            this.threads.setThreadCpuTimeEnabled(true);
+        }
+
+        com.sun.management.ThreadMXBean allocations = null;
+        if(this.threads instanceof com.sun.management.ThreadMXBean) {
+            allocations = (com.sun.management.ThreadMXBean) this.threads;
+            if(allocations.isThreadAllocatedMemorySupported()) {
+                allocations.setThreadAllocatedMemoryEnabled(true);
+            } else {
+                allocations = null;
+            }
+        }
+        this.allocations = allocations;
+    }
+
+    public static final class Usage {
+
+        private final LongAdder cpuNanos = new LongAdder();
+        private final LongAdder allocatedBytes = new LongAdder();
+
+        // Totals at the last report, used to log the usage of each interval
+        private long reportedCpu;
+        private long reportedAllocated;
+
+        /**
+         * @return CPU time spent in the module on threads Titan knows about, in nanoseconds
+         */
+        public long getCpuNanos() {
+            return this.cpuNanos.sum();
+        }
+
+        /**
+         * @return Bytes allocated by the module on threads Titan knows about, 0 if the JVM cannot measure allocations
+         */
+        public long getAllocatedBytes() {
+            return this.allocatedBytes.sum();
+        }
+    }
+
+    /**
+     * Run work on behalf of a module, attributing the CPU time and allocations of the current thread to it
+     *
+     * @param instance Module doing the work
+     * @param work Work to be run
+     * @return Result of the work
+     */
+    public <T> T measure(final ModuleInstance instance, final Supplier<T> work) {
+        if(instance == null || (!this.cpu && this.allocations == null)) {
+            return work.get();
+        }
+
+        final Frame frame = new Frame(this.current.get(), this.getCpu(), this.getAllocated());
+        this.current.set(frame);
+        try {
+            return work.get();
+        } finally {
+            final long cpu = this.getCpu() - frame.cpu;
+            final long allocated = this.getAllocated() - frame.allocated;
+
+            final Usage usage = this.usage.computeIfAbsent(instance.getName(), name -> new Usage());
+            usage.cpuNanos.add(cpu - frame.childCpu);
+            usage.allocatedBytes.add(allocated - frame.childAllocated);
+
+            if(frame.parent != null) {
+                frame.parent.childCpu += cpu;
+                frame.parent.childAllocated += allocated;
+            }
+            this.current.set(frame.parent);
+        }
+    }
+
+    /**
+     * Wrap a task so it is measured against a module whichever thread runs it
+     *
+     * @param instance Module owning the task
+     * @param task Task to be wrapped
+     * @return Measured task
+     */
+    public Runnable wrap(final ModuleInstance instance, final Runnable task) {
+        return () -> this.measure(instance, () -> {
+            task.run();
+            return null;
+        });
+    }
+
+    /**
+     * @return Usage of every measured module by name
+     */
+    public Map<String, Usage> getUsage() {
+        return Collections.unmodifiableMap(this.usage);
+    }
+
+    /**
+     * @param module Name of the module
+     * @return Usage of the module, null if nothing has been measured
+     */
+    public Usage getUsage(final String module) {
+        return this.usage.get(module);
+    }
+
+    /**
+     * Log the usage of each module every interval, highest CPU time first
+     *
+     * @param logger Logger to be written to
+     * @param interval Milliseconds between reports
+     */
+    synchronized void start(final LLogger logger, final long interval) {
+        if(this.reporter != null || interval <= 0) {
+            return;
+        }
+
+        this.reporter = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                .setNameFormat("titan-module-accounting")
+                .setDaemon(true)
+                .build());
+        this.reporter.scheduleAtFixedRate(() -> this.report(logger), interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Stop the periodic reports, waiting for one already being written so it cannot interleave with a final report
+     */
+    synchronized void stop() {
+        if(this.reporter == null) {
+            return;
+        }
+
+        this.reporter.shutdownNow();
+        try {
+            this.reporter.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        this.reporter = null;
+    }
+
+    /**
+     * Write the usage of each module since the last report and in total
+     *
+     * @param logger Logger to be written to
+     */
+    void report(final LLogger logger) {
+        if(this.usage.isEmpty()) {
+            return;
+        }
+
+        final List<Map.Entry<String, Usage>> entries = new ArrayList<>(this.usage.entrySet());
+        entries.sort(Comparator.comparingLong((Map.Entry<String, Usage> entry) -> entry.getValue().getCpuNanos()).reversed());
+
+        logger.info("[ModuleAccounting] - %-24s %12s %12s %12s %12s", "Module", "cpu ms", "alloc MB", "total cpu ms", "total MB");
+        entries.forEach(entry -> {
+            final Usage usage = entry.getValue();
+            final long cpu = usage.getCpuNanos();
+            final long allocated = usage.getAllocatedBytes();
+
+            logger.info("[ModuleAccounting] - %-24s %12.2f %12.2f %12.2f %12.2f",
+                    entry.getKey(),
+                    (cpu - usage.reportedCpu) / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                    (allocated - usage.reportedAllocated) / (1024.0 * 1024.0),
+                    cpu / (double) TimeUnit.MILLISECONDS.toNanos(1),
+                    allocated / (1024.0 * 1024.0));
+
+            usage.reportedCpu = cpu;
+            usage.reportedAllocated = allocated;
+        });
+    }
+
+    private long getCpu() {
+        return this.cpu ? this.threads.getCurrentThreadCpuTime() : 0;
+    }
+
+    private long getAllocated() {
+        return this.allocations == null ? 0 : this.allocations.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private static final class Frame {
+
+        private final Frame parent;
+        private final long cpu;
+        private final long allocated;
+
+        // Usage of nested measurements, already attributed to their own modules
+        private long childCpu;
+        private long childAllocated;
+
+        private Frame(final Frame parent, final long cpu, final long allocated) {
+            this.parent = parent;
+            this.cpu = cpu;
+            this.allocated = allocated;
+        }
+    }
+}
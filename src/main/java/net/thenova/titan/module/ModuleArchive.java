@@ -0,0 +1,102 @@
+package net.thenova.titan.module;
+
+import lombok.Getter;
+import net.thenova.titan.Titan;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+@Getter
+public final class ModuleArchive {
+
+    private final File directory;
+    private final File archive;
+    private final File classList;
+    private final File moduleList;
+
+    public ModuleArchive(final File directory) {
+        this.directory = directory;
+        this.archive = new File(directory, "titan.jsa");
+        this.classList = new File(directory, "titan.classlist");
+        this.moduleList = new File(directory, "modules.classlist");
+    }
+
+    /**
+     * Write the JVM argument files for a training run and for later runs, used as 'java @cds/train.args ...'.
+     * The archive is created by the JVM itself when a training run exits, which needs JDK 13 or later.
+     */
+    public void writeArguments() {
+        if(!this.directory.exists() && !this.directory.mkdirs()) {
+            Titan.INSTANCE.getLogger().info("[ModuleArchive] - Failed to create directory '%s'", this.directory.getPath());
+            return;
+        }
+
+        this.write(new File(this.directory, "train.args"), Arrays.asList(
+                "-XX:ArchiveClassesAtExit=" + this.archive.getAbsolutePath(),
+                "-XX:DumpLoadedClassList=" + this.classList.getAbsolutePath()));
+        this.write(new File(this.directory, "run.args"), Collections.singletonList(
+                "-XX:SharedArchiveFile=" + this.archive.getAbsolutePath()));
+    }
+
+    /**
+     * @return Whether this JVM will write a dynamic archive on exit
+     */
+    public boolean isArchiving() {
+        return ManagementFactory.getRuntimeMXBean().getInputArguments().stream()
+                .anyMatch(argument -> argument.startsWith("-XX:ArchiveClassesAtExit="));
+    }
+
+    /**
+     * Write the classes each module loader defined along with its jar.
+     * Module classes only end up in the archive if their jar is at the same path on later runs.
+     *
+     * @param loaders Loaders of all modules
+     */
+    public void record(final Collection<ModuleClassLoader> loaders) {
+        final List<String> lines = new ArrayList<>();
+        loaders.stream()
+                .filter(loader -> loader.getInstance() != null)
+                .sorted(Comparator.comparing(loader -> loader.getInstance().getName()))
+                .forEach(loader -> {
+                    final URL[] urls = loader.getURLs();
+                    final List<String> classes = loader.getLocalClasses();
+
+                    lines.add(String.format("# %s %s", loader.getInstance().getName(), urls.length == 0 ? "" : urls[0]));
+                    lines.addAll(classes);
+                });
+
+        this.write(this.moduleList, lines);
+        Titan.INSTANCE.getLogger().info("[ModuleArchive] - Recorded classes of %d module(s) to '%s'",
+                loaders.size(), this.moduleList.getPath());
+    }
+
+    private void write(final File file, final List<String> lines) {
+        try {
+            Files.write(file.toPath(), lines, StandardCharsets.UTF_8);
+        } catch (final IOException ex) {
+            Titan.INSTANCE.getLogger().info("[ModuleArchive] - Failed to write '%s'\n%s",
+                    file.getPath(), ExceptionUtils.getStackTrace(ex));
+        }
+    }
+}
@@ -0,0 +1,159 @@
+package net.thenova.titan.module;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.jar.JarEntry;
+import java.util.jar.JarFile;
+import java.util.stream.Collectors;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+final class ModuleClassIndex {
+
+    // Class name -> loader of the jar containing it, the first registered jar wins
+    private final Map<String, ModuleClassLoader> classes = new ConcurrentHashMap<>();
+    // Package name -> loaders of every jar with classes in it
+    private final Map<String, Set<ModuleClassLoader>> packages = new ConcurrentHashMap<>();
+    private final Map<ModuleClassLoader, Collection<String>> owned = new ConcurrentHashMap<>();
+    // Class name -> later jars also containing it, in registration order, only present for duplicated names
+    private final Map<String, Deque<ModuleClassLoader>> shadowed = new HashMap<>();
+
+    // Names which no module could provide, cleared whenever a jar is added
+    private final Cache<String, Boolean> misses = CacheBuilder.newBuilder()
+            .maximumSize(10000)
+            .build();
+
+    /**
+     * Index all classes of a module jar
+     *
+     * @param loader Loader of the jar
+     * @param names Binary names of all classes in the jar
+     */
+    synchronized void add(final ModuleClassLoader loader, final Collection<String> names) {
+        this.owned.put(loader, names);
+        names.forEach(name -> {
+            final ModuleClassLoader owner = this.classes.putIfAbsent(name, loader);
+            if(owner != null && owner != loader) {
+                this.shadowed.computeIfAbsent(name, key -> new ArrayDeque<>()).add(loader);
+            }
+            this.packages.computeIfAbsent(ModuleClassIndex.getPackage(name), key -> ConcurrentHashMap.newKeySet())
+                    .add(loader);
+        });
+
+        this.misses.invalidateAll();
+    }
+
+    /**
+     * Remove all classes of a module jar, runs in O(classes of the jar).
+     * Names the jar owned are handed to the next jar containing them, if any.
+     *
+     * @param loader Loader of the jar
+     */
+    synchronized void remove(final ModuleClassLoader loader) {
+        final Collection<String> names = this.owned.remove(loader);
+        if(names == null) {
+            return;
+        }
+
+        names.forEach(name -> {
+            final Deque<ModuleClassLoader> others = this.shadowed.get(name);
+            if(others != null) {
+                others.remove(loader);
+            }
+
+            if(this.classes.remove(name, loader) && others != null && !others.isEmpty()) {
+                this.classes.put(name, others.poll());
+            }
+            if(others != null && others.isEmpty()) {
+                this.shadowed.remove(name);
+            }
+
+            final String pkg = ModuleClassIndex.getPackage(name);
+            final Set<ModuleClassLoader> loaders = this.packages.get(pkg);
+            if(loaders != null && loaders.remove(loader) && loaders.isEmpty()) {
+                this.packages.remove(pkg);
+            }
+        });
+    }
+
+    /**
+     * Fetch the loaders which could provide a class.
+     * The loader of the jar containing the class comes first, followed by loaders sharing its package.
+     *
+     * @param name Binary name of the class
+     * @return Candidate loaders, empty if no module can provide the class
+     */
+    List<ModuleClassLoader> find(final String name) {
+        if(this.misses.getIfPresent(name) != null) {
+            return Collections.emptyList();
+        }
+
+        final ModuleClassLoader owner = this.classes.get(name);
+        final Set<ModuleClassLoader> shared = this.packages.getOrDefault(ModuleClassIndex.getPackage(name), Collections.emptySet());
+        if(owner == null && shared.isEmpty()) {
+            this.misses.put(name, Boolean.TRUE);
+            return Collections.emptyList();
+        }
+
+        final List<ModuleClassLoader> loaders = new ArrayList<>(shared.size() + 1);
+        if(owner != null) {
+            loaders.add(owner);
+        }
+        shared.stream()
+                .filter(loader -> loader != owner)
+                .forEach(loaders::add);
+        return loaders;
+    }
+
+    /**
+     * Record a class which could not be found in any candidate loader
+     *
+     * @param name Binary name of the class
+     */
+    void miss(final String name) {
+        this.misses.put(name, Boolean.TRUE);
+    }
+
+    /**
+     * @param loader Loader of the jar
+     * @return Binary names of all classes in the jar, empty if it is not indexed
+     */
+    Collection<String> getClasses(final ModuleClassLoader loader) {
+        return this.owned.getOrDefault(loader, Collections.emptyList());
+    }
+
+    /**
+     * List all classes contained in a jar from its central directory
+     *
+     * @param jar Open jar file
+     * @return Binary names of all classes
+     */
+    static List<String> list(final JarFile jar) {
+        return jar.stream()
+                .map(JarEntry::getName)
+                .filter(name -> name.endsWith(".class") && !name.endsWith("module-info.class"))
+                .map(name -> name.substring(0, name.length() - ".class".length()).replace('/', '.'))
+                .collect(Collectors.toList());
+    }
+
+    private static String getPackage(final String name) {
+        final int index = name.lastIndexOf('.');
+        return index == -1 ? "" : name.substring(0, index);
+    }
+}
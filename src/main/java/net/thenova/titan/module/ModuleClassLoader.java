@@ -1,9 +1,22 @@
 package net.thenova.titan.module;
 
+import com.google.common.io.ByteStreams;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+import net.thenova.titan.module.module.ModuleInstance;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.URISyntaxException;
 import java.net.URL;
 import java.net.URLClassLoader;
-import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
 
 /**
  * Copyright 2020 ipr0james
@@ -22,10 +35,61 @@ import java.util.Map;
  */
 public final class ModuleClassLoader extends URLClassLoader {
 
-    private final Map<String, Class<?>> classes = new HashMap<>();
+    static {
+        // Class loading locks are taken per class name rather than on the whole loader
+        ClassLoader.registerAsParallelCapable();
+    }
+
+    // Set on warmup threads, classes they define were not requested by the module itself
+    private static final ThreadLocal<Boolean> WARMUP = ThreadLocal.withInitial(() -> Boolean.FALSE);
+
+    private final Map<String, Class<?>> classes = new ConcurrentHashMap<>();
+    // Classes defined by warmup rather than by the module, including supertypes loaded along with them
+    private final Set<String> warmed = ConcurrentHashMap.newKeySet();
+
+    private final ModuleResources resources;
+
+    @Getter private final ClassLoaderMetrics metrics = new ClassLoaderMetrics();
+
+    // Module the loader belongs to, set once it has been registered
+    @Getter @Setter(AccessLevel.PACKAGE) private ModuleInstance instance;
 
     public ModuleClassLoader(final URL url, final ClassLoader parent) {
         super(new URL[]{ url }, parent);
+
+        try {
+            this.resources = new ModuleResources(new File(url.toURI()));
+        } catch (final URISyntaxException ex) {
+            throw new IllegalArgumentException("Module jar URL is not a file: " + url, ex);
+        }
+    }
+
+    /**
+     * Load a class without holding a loader lock for the whole lookup as ClassLoader does.
+     * Only defining a class from this loaders jar is locked, see findClass(String, boolean).
+     *
+     * @param name - String
+     * @param resolve - Boolean
+     * @return - Class
+     * @throws ClassNotFoundException - Exception
+     */
+    @Override
+    protected Class<?> loadClass(final String name, final boolean resolve) throws ClassNotFoundException {
+        Class<?> result = this.findLoadedClass(name);
+        if(result == null) {
+            try {
+                result = this.getParent().loadClass(name);
+            } catch (final ClassNotFoundException ignored) {}
+        }
+
+        if(result == null) {
+            result = this.findClass(name);
+        }
+
+        if(resolve) {
+            this.resolveClass(result);
+        }
+        return result;
     }
 
     @Override
@@ -35,7 +99,10 @@ public final class ModuleClassLoader extends URLClassLoader {
 
     /**
      * Check the cache for the fetched class or check the loader.
-     * If global, check all other modules for the class
+     * If global, check the modules this module depends on for the class
+     * <p>
+     * No lock is held while other modules are checked, only defining a class locks on its name within its own loader.
+     * A thread therefore never waits on a second loader while holding a lock, so loaders cannot deadlock on each other.
      *
      * @param name - String
      * @param checkGlobal - Boolean
@@ -43,21 +110,131 @@ public final class ModuleClassLoader extends URLClassLoader {
      * @throws ClassNotFoundException - Exception
      */
     Class<?> findClass(final String name, final boolean checkGlobal) throws ClassNotFoundException {
-        Class<?> result = this.classes.get(name);
-        if(result == null) {
+        final ClassLoaderMetrics.Frame frame = ClassLoaderMetrics.start();
+        try {
+            Class<?> result = this.classes.get(name);
+            if(result != null) {
+                this.metrics.cacheHit();
+                return result;
+            }
+
             if(checkGlobal) {
-                result = ModuleManager.INSTANCE.getClassByName(name);
+                result = ModuleManager.INSTANCE.getClassByName(name, this.instance);
+                if(result != null) {
+                    this.metrics.globalHit();
+                }
             }
+
+            if(result == null) {
+                result = this.findLocal(name);
+            }
+
+            final Class<?> existing = this.classes.putIfAbsent(name, result);
+            return existing == null ? result : existing;
+        } catch (final ClassNotFoundException ex) {
+            this.metrics.miss();
+            throw ex;
+        } finally {
+            this.metrics.stop(frame);
         }
+    }
 
-        if(result == null) {
-            result = super.findClass(name);
+    /**
+     * Define a class from this loaders jar, threads defining the same class wait on a lock for that name
+     *
+     * @param name - String
+     * @return - Class
+     * @throws ClassNotFoundException - Exception
+     */
+    private Class<?> findLocal(final String name) throws ClassNotFoundException {
+        synchronized (this.getClassLoadingLock(name)) {
+            Class<?> loaded = this.findLoadedClass(name);
+            if(loaded == null) {
+                loaded = super.findClass(name);
+                this.metrics.defined();
+                if(WARMUP.get()) {
+                    this.warmed.add(name);
+                }
+            }
+            return loaded;
         }
+    }
 
-        if(result != null) {
-            this.classes.put(name, result);
+    /**
+     * Jars without the resource are answered from the resource index without touching the jar
+     *
+     * @param name - String
+     * @return - URL
+     */
+    @Override
+    public URL findResource(final String name) {
+        return this.resources.contains(name) ? super.findResource(name) : null;
+    }
+
+    /**
+     * Read a resource from this loaders jar only, through the jar handle kept open by the loader.
+     * Small resources such as default configs are cached, see 'titan.module.resource.cache'.
+     * If the jar could not be indexed the resource is read through URLClassLoader instead, uncached.
+     *
+     * @param name Resource name
+     * @return Contents of the resource, null if the jar does not contain it
+     * @throws IOException Thrown if the jar could not be read
+     */
+    public byte[] getResourceBytes(final String name) throws IOException {
+        if(!this.resources.isAvailable()) {
+            final URL url = super.findResource(name);
+            if(url == null) {
+                return null;
+            }
+
+            try (InputStream stream = url.openStream()) {
+                return ByteStreams.toByteArray(stream);
+            }
         }
 
-        return result;
+        final byte[] bytes = this.resources.read(name);
+        return bytes == null ? null : bytes.clone();
+    }
+
+    /**
+     * @return Names of all cached classes defined by this loader rather than found through another module
+     */
+    List<String> getLocalClasses() {
+        return this.classes.entrySet().stream()
+                .filter(entry -> entry.getValue().getClassLoader() == this)
+                .map(Map.Entry::getKey)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * @return Names of all cached classes defined by this loader for the module itself, classes defined by a warmup pass over the jar are left out
+     */
+    List<String> getRequestedClasses() {
+        return this.getLocalClasses().stream()
+                .filter(name -> !this.warmed.contains(name))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Mark the current thread as a warmup thread, classes it defines are not reported by getRequestedClasses
+     *
+     * @param warmup Whether the thread is warming classes
+     */
+    static void setWarmup(final boolean warmup) {
+        WARMUP.set(warmup);
+    }
+
+    /**
+     * Drop all cached classes and close the jar, the loader cannot be used after this
+     *
+     * @throws IOException Thrown if the jar could not be closed
+     */
+    @Override
+    public void close() throws IOException {
+        this.classes.clear();
+        this.warmed.clear();
+        this.resources.close();
+        super.close();
     }
 }
@@ -0,0 +1,287 @@
+package net.thenova.titan.module;
+
+import de.arraying.kotys.JSONArray;
+import lombok.Getter;
+import net.thenova.titan.module.module.ModuleInstance;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public final class ModuleGraph {
+
+    private static final Comparator<ModuleInstance> BY_NAME = Comparator.comparing(
+            instance -> instance.getDescriptionFile().getName(),
+            Comparator.nullsLast(String.CASE_INSENSITIVE_ORDER));
+
+    // Lower case module name -> instance
+    private final Map<String, ModuleInstance> index = new HashMap<>();
+
+    private final Map<ModuleInstance, Set<ModuleInstance>> dependencies = new HashMap<>();
+    private final Map<ModuleInstance, Set<ModuleInstance>> dependents = new HashMap<>();
+    private final Map<ModuleInstance, Set<String>> missing = new LinkedHashMap<>();
+    private final Map<ModuleInstance, Integer> position = new HashMap<>();
+    private final Map<ModuleInstance, Map<ModuleInstance, Integer>> required = new ConcurrentHashMap<>();
+
+    /* Modules in dependency order, split into waves of modules which do not depend on each other */
+    @Getter private final List<ModuleInstance> ordered = new ArrayList<>();
+    @Getter private final List<List<ModuleInstance>> waves = new ArrayList<>();
+
+    /* Modules which could not be ordered as they are part of, or depend on, a dependency cycle */
+    @Getter private final Set<ModuleInstance> cyclic = new LinkedHashSet<>();
+    /* Modules which are part of a dependency cycle themselves */
+    @Getter private final Set<ModuleInstance> circular = new LinkedHashSet<>();
+
+    /**
+     * Resolve the dependency graph of the provided modules, runs in O(modules + dependencies)
+     *
+     * @param modules Modules to be resolved
+     */
+    public ModuleGraph(final Collection<ModuleInstance> modules) {
+        final List<ModuleInstance> sorted = new ArrayList<>(modules);
+        sorted.sort(BY_NAME);
+
+        sorted.forEach(instance -> {
+            final String name = instance.getDescriptionFile().getName();
+            if(name != null) {
+                this.index.putIfAbsent(name.toLowerCase(Locale.ROOT), instance);
+            }
+
+            this.dependencies.put(instance, new LinkedHashSet<>());
+            this.dependents.put(instance, new LinkedHashSet<>());
+        });
+
+        sorted.forEach(instance -> {
+            final JSONArray array = instance.getDescriptionFile().getDependency();
+            if(array == null) {
+                return;
+            }
+
+            for(int i = 0; i < array.length(); i++) {
+                final String name = array.string(i);
+                final ModuleInstance dependency = this.get(name);
+
+                if(dependency == null) {
+                    this.missing.computeIfAbsent(instance, key -> new LinkedHashSet<>()).add(name);
+                } else {
+                    this.dependencies.get(instance).add(dependency);
+                    this.dependents.get(dependency).add(instance);
+                }
+            }
+        });
+
+        // Kahn's algorithm, each generation of zero in-degree modules forms a wave
+        final Map<ModuleInstance, Integer> degree = new HashMap<>();
+        List<ModuleInstance> current = new ArrayList<>();
+        for(final ModuleInstance instance : sorted) {
+            final int size = this.dependencies.get(instance).size();
+            degree.put(instance, size);
+
+            if(size == 0) {
+                current.add(instance);
+            }
+        }
+
+        while(!current.isEmpty()) {
+            this.waves.add(current);
+            for(final ModuleInstance instance : current) {
+                this.position.put(instance, this.ordered.size());
+                this.ordered.add(instance);
+            }
+
+            final List<ModuleInstance> next = new ArrayList<>();
+            for(final ModuleInstance instance : current) {
+                for(final ModuleInstance dependent : this.dependents.get(instance)) {
+                    if(degree.merge(dependent, -1, Integer::sum) == 0) {
+                        next.add(dependent);
+                    }
+                }
+            }
+            current = next;
+        }
+
+        if(this.ordered.size() != sorted.size()) {
+            sorted.stream()
+                    .filter(instance -> degree.get(instance) > 0)
+                    .forEach(this.cyclic::add);
+            this.findCircular();
+        }
+    }
+
+    /**
+     * Find the modules on a cycle among those which could not be ordered, using Tarjan's strongly connected components.
+     * Iterative so a long chain cannot overflow the stack, runs in O(modules + dependencies).
+     */
+    private void findCircular() {
+        final Map<ModuleInstance, Integer> index = new HashMap<>();
+        final Map<ModuleInstance, Integer> low = new HashMap<>();
+        final Deque<ModuleInstance> stack = new ArrayDeque<>();
+        final Set<ModuleInstance> stacked = new HashSet<>();
+
+        for(final ModuleInstance root : this.cyclic) {
+            if(index.containsKey(root)) {
+                continue;
+            }
+
+            final Deque<ModuleInstance> path = new ArrayDeque<>();
+            final Deque<Iterator<ModuleInstance>> iterators = new ArrayDeque<>();
+            index.put(root, index.size());
+            low.put(root, index.get(root));
+            stack.push(root);
+            stacked.add(root);
+            path.push(root);
+            iterators.push(this.getDependencies(root).iterator());
+
+            while(!path.isEmpty()) {
+                final ModuleInstance instance = path.peek();
+                final Iterator<ModuleInstance> iterator = iterators.peek();
+
+                if(iterator.hasNext()) {
+                    final ModuleInstance dependency = iterator.next();
+                    if(!this.cyclic.contains(dependency)) {
+                        continue;
+                    }
+
+                    if(!index.containsKey(dependency)) {
+                        index.put(dependency, index.size());
+                        low.put(dependency, index.get(dependency));
+                        stack.push(dependency);
+                        stacked.add(dependency);
+                        path.push(dependency);
+                        iterators.push(this.getDependencies(dependency).iterator());
+                    } else if(stacked.contains(dependency)) {
+                        low.put(instance, Math.min(low.get(instance), index.get(dependency)));
+                    }
+                    continue;
+                }
+
+                path.pop();
+                iterators.pop();
+                if(!path.isEmpty()) {
+                    low.put(path.peek(), Math.min(low.get(path.peek()), low.get(instance)));
+                }
+
+                if(low.get(instance).equals(index.get(instance))) {
+                    final List<ModuleInstance> component = new ArrayList<>();
+                    ModuleInstance member;
+                    do {
+                        member = stack.pop();
+                        stacked.remove(member);
+                        component.add(member);
+                    } while(member != instance);
+
+                    if(component.size() > 1 || this.getDependencies(instance).contains(instance)) {
+                        this.circular.addAll(component);
+                    }
+                }
+            }
+        }
+
+        // Kept in name order like every other set of the graph
+        final List<ModuleInstance> sorted = new ArrayList<>(this.circular);
+        sorted.sort(BY_NAME);
+        this.circular.clear();
+        this.circular.addAll(sorted);
+    }
+
+    /**
+     * Fetch a module by its name, ignoring case
+     *
+     * @param name Name of the module
+     * @return ModuleInstance or null if not present
+     */
+    public ModuleInstance get(final String name) {
+        return name == null ? null : this.index.get(name.toLowerCase(Locale.ROOT));
+    }
+
+    /**
+     * @param instance Module to check
+     * @return Modules the instance directly depends on
+     */
+    public Set<ModuleInstance> getDependencies(final ModuleInstance instance) {
+        return this.dependencies.getOrDefault(instance, Collections.emptySet());
+    }
+
+    /**
+     * @param instance Module to check
+     * @return Modules which directly depend on the instance
+     */
+    public Set<ModuleInstance> getDependents(final ModuleInstance instance) {
+        return this.dependents.getOrDefault(instance, Collections.emptySet());
+    }
+
+    /**
+     * Fetch a module along with every module depending on it, directly or not
+     *
+     * @param instance Module to start from
+     * @return Modules in dependency order, starting with the instance
+     */
+    public List<ModuleInstance> getAffected(final ModuleInstance instance) {
+        final Set<ModuleInstance> affected = new HashSet<>();
+        final Deque<ModuleInstance> queue = new ArrayDeque<>();
+        affected.add(instance);
+        queue.add(instance);
+
+        while(!queue.isEmpty()) {
+            this.getDependents(queue.poll()).stream()
+                    .filter(affected::add)
+                    .forEach(queue::add);
+        }
+
+        final List<ModuleInstance> result = new ArrayList<>(affected);
+        result.sort(Comparator.comparingInt(module -> this.position.getOrDefault(module, Integer.MAX_VALUE)));
+        return result;
+    }
+
+    /**
+     * Fetch every module the instance depends on, directly or not, this is resolved once per module
+     *
+     * @param instance Module to check
+     * @return Modules mapped to their rank in dependency order, lower ranks come first
+     */
+    public Map<ModuleInstance, Integer> getRequired(final ModuleInstance instance) {
+        return this.required.computeIfAbsent(instance, key -> {
+            final Set<ModuleInstance> found = new HashSet<>();
+            final Deque<ModuleInstance> queue = new ArrayDeque<>(this.getDependencies(key));
+            while(!queue.isEmpty()) {
+                final ModuleInstance dependency = queue.poll();
+                if(found.add(dependency)) {
+                    queue.addAll(this.getDependencies(dependency));
+                }
+            }
+
+            final Map<ModuleInstance, Integer> ranks = new HashMap<>();
+            found.forEach(dependency -> ranks.put(dependency, this.position.getOrDefault(dependency, Integer.MAX_VALUE)));
+            return Collections.unmodifiableMap(ranks);
+        });
+    }
+
+    /**
+     * @param instance Module to check
+     * @return Names of dependencies which are not present
+     */
+    public Set<String> getMissing(final ModuleInstance instance) {
+        return this.missing.getOrDefault(instance, Collections.emptySet());
+    }
+
+    /**
+     * @return Modules which have at least one missing dependency
+     */
+    public Set<ModuleInstance> getIncomplete() {
+        return Collections.unmodifiableSet(this.missing.keySet());
+    }
+}
@@ -0,0 +1,206 @@
+package net.thenova.titan.module;
+
+import com.google.common.hash.Hashing;
+import de.arraying.kotys.JSON;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import net.thenova.titan.Titan;
+import net.thenova.titan.module.module.data.ModuleDescriptionFile;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+@RequiredArgsConstructor
+final class ModuleIndex {
+
+    @Getter
+    @RequiredArgsConstructor
+    static final class Entry {
+        private final long size;
+        private final long modified;
+        private final String hash;
+
+        private final JSON description;
+        private final String main;
+        private final String loader;
+
+        private final List<String> classes;
+
+        /**
+         * @return Parsed description of the module
+         */
+        ModuleDescriptionFile toDescriptionFile() {
+            return this.description.marshal(ModuleDescriptionFile.class);
+        }
+
+        /**
+         * @return Entry as JSON, numbers are held as strings to keep their precision
+         */
+        JSON toJSON() {
+            final JSON json = new JSON();
+            json.put("size", String.valueOf(this.size));
+            json.put("modified", String.valueOf(this.modified));
+            json.put("hash", this.hash);
+            json.put("description", this.description);
+            json.put("main", this.main);
+
+            if(this.loader != null) {
+                json.put("loader", this.loader);
+            }
+            json.put("classes", String.join(",", this.classes));
+            return json;
+        }
+
+        /**
+         * @param json Entry as JSON
+         * @return Entry read from the JSON
+         */
+        static Entry fromJSON(final JSON json) {
+            return new Entry(Long.parseLong(json.string("size")),
+                    Long.parseLong(json.string("modified")),
+                    json.string("hash"),
+                    json.json("description"),
+                    json.string("main"),
+                    json.has("loader") ? json.string("loader") : null,
+                    !json.string("classes").isEmpty()
+                            ? Arrays.asList(json.string("classes").split(","))
+                            : Collections.emptyList());
+        }
+    }
+
+    private final File file;
+
+    // Entries read from the previous run, and entries for the jars seen during this run
+    private final Map<String, Entry> previous = new ConcurrentHashMap<>();
+    private final Map<String, Entry> current = new ConcurrentHashMap<>();
+
+    @Getter private final AtomicInteger hits = new AtomicInteger();
+    @Getter private final AtomicInteger misses = new AtomicInteger();
+
+    /**
+     * Read the index file, a missing or broken index is treated as empty
+     */
+    void load() {
+        if(!this.file.exists()) {
+            return;
+        }
+
+        try {
+            new JSON(this.file).raw().forEach((name, value) -> {
+                if(value instanceof JSON) {
+                    this.previous.put(name, Entry.fromJSON((JSON) value));
+                }
+            });
+        } catch (final Exception ex) {
+            this.previous.clear();
+            Titan.INSTANCE.getLogger().info("[ModuleIndex] - Failed to read module index, all jars will be rescanned\n%s",
+                    ExceptionUtils.getStackTrace(ex));
+        }
+    }
+
+    /**
+     * Find the entry of a jar if it has not changed since it was indexed.
+     * Size and modified time are checked first, the content hash is only calculated when those differ.
+     *
+     * @param jar Jar file to be checked
+     * @return Entry or null if the jar needs to be scanned
+     */
+    Entry lookup(final File jar) {
+        final Entry entry = this.previous.get(jar.getName());
+        if(entry == null || entry.getSize() != jar.length()) {
+            this.misses.incrementAndGet();
+            return null;
+        }
+
+        Entry result = entry;
+        if(entry.getModified() != jar.lastModified()) {
+            final String hash = ModuleIndex.hash(jar);
+            if(hash == null || !hash.equals(entry.getHash())) {
+                this.misses.incrementAndGet();
+                return null;
+            }
+
+            result = new Entry(entry.getSize(), jar.lastModified(), hash, entry.getDescription(),
+                    entry.getMain(), entry.getLoader(), entry.getClasses());
+        }
+
+        this.current.put(jar.getName(), result);
+        this.hits.incrementAndGet();
+        return result;
+    }
+
+    /**
+     * Store the scanned description of a jar
+     *
+     * @param jar Jar file scanned
+     * @param description Raw module.json
+     * @param descriptionFile Parsed module.json with resolved classes
+     * @param classes Binary names of all classes in the jar
+     */
+    void store(final File jar, final String description, final ModuleDescriptionFile descriptionFile, final List<String> classes) {
+        final String hash = ModuleIndex.hash(jar);
+        if(hash == null) {
+            return;
+        }
+
+        this.current.put(jar.getName(), new Entry(jar.length(),
+                jar.lastModified(),
+                hash,
+                new JSON(description),
+                descriptionFile.getMain(),
+                descriptionFile.getLoader(),
+                classes));
+    }
+
+    /**
+     * Write all entries of jars seen during this run back to the index file
+     */
+    void save() {
+        final JSON json = new JSON();
+        this.current.forEach((name, entry) -> json.put(name, entry.toJSON()));
+
+        try {
+            Files.write(this.file.toPath(), json.marshal().getBytes(StandardCharsets.UTF_8));
+        } catch (final IOException ex) {
+            Titan.INSTANCE.getLogger().info("[ModuleIndex] - Failed to write module index\n%s",
+                    ExceptionUtils.getStackTrace(ex));
+        }
+    }
+
+    /**
+     * @param jar File to hash
+     * @return SHA-256 of the file contents or null if it could not be read
+     */
+    @SuppressWarnings("UnstableApiUsage")
+    private static String hash(final File jar) {
+        try {
+            return com.google.common.io.Files.asByteSource(jar).hash(Hashing.sha256()).toString();
+        } catch (final IOException ex) {
+            return null;
+        }
+    }
+}
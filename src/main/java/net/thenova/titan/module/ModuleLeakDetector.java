@@ -0,0 +1,164 @@
+package net.thenova.titan.module;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import lombok.RequiredArgsConstructor;
+import net.thenova.titan.Titan;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+@RequiredArgsConstructor
+final class ModuleLeakDetector {
+
+    private final long delay;
+    // Milliseconds to wait for released loaders to be enqueued after requesting a collection
+    private final long settle = Titan.INSTANCE.property("titan.module.leak.settle").defaulting(200).asLong();
+
+    private final ReferenceQueue<ModuleClassLoader> queue = new ReferenceQueue<>();
+    private final Set<Released> released = ConcurrentHashMap.newKeySet();
+    // Loaders already reported, so a leak is only logged once
+    private final Set<Released> reported = ConcurrentHashMap.newKeySet();
+
+    private ScheduledExecutorService executor;
+
+    /**
+     * Track a released loader, it is reported if it has not been collected once the delay has passed
+     *
+     * @param loader Loader which has been released
+     * @param name Name of the module it belonged to
+     */
+    synchronized void track(final ModuleClassLoader loader, final String name) {
+        this.released.add(new Released(loader, this.queue, name, System.currentTimeMillis()));
+
+        if(this.executor == null) {
+            this.executor = Executors.newSingleThreadScheduledExecutor(new ThreadFactoryBuilder()
+                    .setNameFormat("titan-module-leaks")
+                    .setDaemon(true)
+                    .build());
+        }
+        this.executor.schedule(this::check, this.delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Only loaders confirmed by a check are counted, a young collection alone says nothing about an old loader
+     *
+     * @return Names of modules whose loaders survived a full collection requested after the delay had passed
+     */
+    List<String> getLeaked() {
+        this.poll();
+
+        return this.reported.stream()
+                .map(released -> released.name)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Report loaders which are still reachable once the delay has passed.
+     * A collection is requested first so a quiet process with a large heap does not report loaders it simply has not
+     * collected yet, nothing is reported unless a collection was actually observed after that request.
+     */
+    private void check() {
+        this.poll();
+
+        final long now = System.currentTimeMillis();
+        if(this.released.stream().noneMatch(released -> now - released.time >= this.delay && !this.reported.contains(released))) {
+            return;
+        }
+
+        final long collections = ModuleLeakDetector.collections();
+        System.gc();
+        this.settle();
+
+        // Explicit collections may be disabled, in which case surviving loaders prove nothing
+        if(ModuleLeakDetector.collections() <= collections) {
+            return;
+        }
+
+        final List<Released> leaked = this.released.stream()
+                .filter(released -> now - released.time >= this.delay)
+                .filter(this.reported::add)
+                .collect(Collectors.toList());
+
+        leaked.forEach(released -> Titan.INSTANCE.getLogger().info(
+                "[ModuleLeakDetector] - Class loader of module '%s' has not been collected %d ms after being released, its classes may still be referenced",
+                released.name,
+                now - released.time));
+    }
+
+    /**
+     * Wait up to the settle time for collected loaders to be enqueued, removing them as they arrive
+     */
+    private void settle() {
+        final long deadline = System.currentTimeMillis() + this.settle;
+        long wait;
+        while((wait = deadline - System.currentTimeMillis()) > 0) {
+            try {
+                final Released released = (Released) this.queue.remove(wait);
+                if(released == null) {
+                    return;
+                }
+
+                this.released.remove(released);
+                this.reported.remove(released);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    /**
+     * @return Collections completed by every collector of the JVM so far
+     */
+    private static long collections() {
+        return ManagementFactory.getGarbageCollectorMXBeans().stream()
+                .mapToLong(GarbageCollectorMXBean::getCollectionCount)
+                .filter(count -> count > 0)
+                .sum();
+    }
+
+    private void poll() {
+        Released released;
+        while((released = (Released) this.queue.poll()) != null) {
+            this.released.remove(released);
+            this.reported.remove(released);
+        }
+    }
+
+    private static final class Released extends WeakReference<ModuleClassLoader> {
+
+        private final String name;
+        private final long time;
+
+        private Released(final ModuleClassLoader loader, final ReferenceQueue<ModuleClassLoader> queue,
+                         final String name, final long time) {
+            super(loader, queue);
+            this.name = name;
+            this.time = time;
+        }
+    }
+}
@@ -1,20 +1,29 @@
 package net.thenova.titan.module;
 
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
 import de.arraying.kotys.JSON;
 import de.arraying.lumberjack.LLogger;
+import lombok.AccessLevel;
 import lombok.Getter;
 import net.thenova.titan.Titan;
+import net.thenova.titan.event.EventBus;
 import net.thenova.titan.module.module.Module;
 import net.thenova.titan.module.module.ModuleInstance;
 import net.thenova.titan.module.module.PackagedModuleInstance;
 import net.thenova.titan.module.module.data.ModuleDescriptionFile;
+import net.thenova.titan.module.module.expansion.Expansion;
 import net.thenova.titan.module.module.expansion.ExpansionLoader;
+import net.thenova.titan.scheduler.ModuleScheduler;
+import net.thenova.titan.service.ServiceRegistry;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
 import java.io.*;
 import java.net.MalformedURLException;
 import java.nio.charset.StandardCharsets;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
 import java.util.jar.JarEntry;
 import java.util.jar.JarFile;
 import java.util.stream.Collectors;
@@ -44,12 +53,31 @@ public enum ModuleManager {
         ENABLE
     }
 
-    private final Set<ModuleInstance> modules = new HashSet<>();
-    private final Set<ModuleClassLoader> classLoaders = new HashSet<>();
+    private final Set<ModuleInstance> modules = ConcurrentHashMap.newKeySet();
+    private final Set<ModuleClassLoader> classLoaders = ConcurrentHashMap.newKeySet();
 
-    private final Map<Module, ExpansionLoader> loaders = new HashMap<>();
+    private final Map<Module, ExpansionLoader> loaders = new ConcurrentHashMap<>();
+    // Module -> instance wrapping it, filled on lookup
+    @Getter(AccessLevel.NONE) private final Map<Module, ModuleInstance> instances = new ConcurrentHashMap<>();
+    // Lazy modules part way through activation, class lookups of these wait for it to finish
+    @Getter(AccessLevel.NONE) private final Set<ModuleInstance> activating = ConcurrentHashMap.newKeySet();
+    // Expansion class -> loaders handling it, replaced whenever the loaders change
+    @Getter(AccessLevel.NONE) private volatile ClassValue<List<ExpansionLoader>> dispatch = this.createDispatch();
+
+    private final ModuleTimings timings = new ModuleTimings();
+    private final ModuleAccounting accounting = new ModuleAccounting();
+    @Getter(AccessLevel.NONE) private final ModuleClassIndex classIndex = new ModuleClassIndex();
+    @Getter(AccessLevel.NONE) private final ModuleLeakDetector leaks =
+            new ModuleLeakDetector(Titan.INSTANCE.property("titan.module.leak.delay").defaulting(30000).asLong());
 
     private LLogger logger;
+    private ForkJoinPool workers;
+    private volatile ModuleGraph graph;
+    // Held while the modules change or the graph is rebuilt, so a graph of a stale set of modules is never kept
+    @Getter(AccessLevel.NONE) private final Object graphLock = new Object();
+    @Getter(AccessLevel.NONE) private ModuleIndex index;
+    @Getter(AccessLevel.NONE) private ModuleWatcher watcher;
+    @Getter(AccessLevel.NONE) private ModuleWarmup warmup;
 
     private File directoryModules;
     private File directoryData;
@@ -86,6 +114,9 @@ public enum ModuleManager {
                     (this.directoryData.mkdirs() ? "successfully" : "not"));
         }
 
+        this.index = new ModuleIndex(new File(this.directoryData, "module-index.json"));
+        this.index.load();
+
         final File[] files;
         if((files = this.directoryModules.listFiles()) == null || files.length == 0) {
             this.logger.info("[ModuleManager] - Titan modules folder was empty. No modules have been loaded.");
@@ -94,25 +125,14 @@ public enum ModuleManager {
 
         this.logger.info("[ModuleManager] - Starting module jar loading...");
 
-        Arrays.stream(files).forEach(file -> {
-            if(!file.getName().endsWith(".jar")) {
-                this.logger.info("[ModuleManager] - Failed to load '%s' as this is not a jar file.",
-                        file.getName());
-                return;
-            }
+        // Sorted so registration is identical whether scanned serially or in parallel
+        Arrays.sort(files);
+        this.scan(files).forEach(this::register);
 
-            try {
-                this.logger.info("[ModuleManager] - Module '%s' jar load status: %s",
-                        file.getName(),
-                        this.loadJar(file) ? "success" : "failed");
-            } catch (final Throwable ex) {
-                this.logger.info("[ModuleManager] - Failed to load '%s'. Please check debug log for errors.",
-                        file.getName());
-                Titan.INSTANCE.getLogger().info("[ModuleManager] - Error loading '%s'\n%s",
-                        file.getName(),
-                        ExceptionUtils.getStackTrace(ex));
-            }
-        });
+        this.index.save();
+        this.logger.info("[ModuleManager] - Module index used for %d jar(s), %d jar(s) were scanned",
+                this.index.getHits().get(),
+                this.index.getMisses().get());
 
         this.logger.info("[ModuleManager] - Module loading completed");
         this.checkDependencies(ModuleStatus.DEPEND);
@@ -156,9 +176,9 @@ public enum ModuleManager {
                         .collect(Collectors.joining(", ")));
 
         modules.forEach((module, loader) -> {
-            this.modules.add(new PackagedModuleInstance(module));
+            this.addModule(new PackagedModuleInstance(module));
             if(loader != null) {
-                this.loaders.put(module, loader);
+                this.addLoader(module, loader);
             }
         });
 
@@ -166,165 +186,958 @@ public enum ModuleManager {
     }
 
     /**
-     * Load a module from its Jar File
+     * Scan all jar files, reading descriptions and resolving classes.
+     * Scanning is spread over a bounded pool unless 'titan.module.scan.parallel' is false.
+     *
+     * @param files Files to be scanned
+     * @return Scan results in the same order as files
+     */
+    private List<ModuleScan> scan(final File[] files) {
+        final boolean parallel = Titan.INSTANCE.property("titan.module.scan.parallel").defaulting(true).asBoolean();
+        final int threads = Math.min(files.length,
+                Titan.INSTANCE.property("titan.module.scan.threads").defaulting(Runtime.getRuntime().availableProcessors()).asInt());
+
+        if(!parallel || threads <= 1) {
+            return Arrays.stream(files)
+                    .map(this::loadJar)
+                    .collect(Collectors.toList());
+        }
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, new ThreadFactoryBuilder()
+                .setNameFormat("titan-module-scan-%d")
+                .setDaemon(true)
+                .build());
+        try {
+            final List<Future<ModuleScan>> futures = Arrays.stream(files)
+                    .map(file -> executor.submit(() -> this.loadJar(file)))
+                    .collect(Collectors.toList());
+
+            final List<ModuleScan> scans = new ArrayList<>();
+            for(int i = 0; i < files.length; i++) {
+                try {
+                    scans.add(futures.get(i).get());
+                } catch (final ExecutionException ex) {
+                    final ModuleScan scan = new ModuleScan(files[i]);
+                    scan.setError(ex.getCause());
+                    scans.add(scan);
+                } catch (final InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+
+                    final ModuleScan scan = new ModuleScan(files[i]);
+                    scan.setError(ex);
+                    scans.add(scan);
+                }
+            }
+            return scans;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Register a scanned jar as a module, writing its log output in scan order
+     *
+     * @param scan Result of the jar scan
+     */
+    private void register(final ModuleScan scan) {
+        final File file = scan.getFile();
+        if(!file.getName().endsWith(".jar")) {
+            this.logger.info("[ModuleManager] - Failed to load '%s' as this is not a jar file.",
+                    file.getName());
+            return;
+        }
+
+        scan.flush(this.logger);
+        if(scan.getError() != null) {
+            this.release(scan.getClassLoader());
+            this.logger.info("[ModuleManager] - Failed to load '%s'. Please check debug log for errors.",
+                    file.getName());
+            Titan.INSTANCE.getLogger().info("[ModuleManager] - Error loading '%s'\n%s",
+                    file.getName(),
+                    ExceptionUtils.getStackTrace(scan.getError()));
+            return;
+        }
+
+        if(scan.isSuccess()) {
+            final ModuleInstance instance = new ModuleInstance(file, scan.getDescriptionFile(), scan.getClassLoader());
+            scan.getClassLoader().setInstance(instance);
+
+            this.addModule(instance);
+            this.classLoaders.add(scan.getClassLoader());
+            this.classIndex.add(scan.getClassLoader(), scan.getClasses());
+        }
+
+        this.logger.info("[ModuleManager] - Module '%s' jar load status: %s",
+                file.getName(),
+                scan.isSuccess() ? "success" : "failed");
+    }
+
+    /**
+     * Load a module from its Jar File, this is safe to be called from any thread
      *
      * @param file File of the Jar
-     * @return Return whether loading stage was successful
+     * @return Result of the scan, holding the module data if successful
      */
-    private boolean loadJar(final File file) {
-        final ModuleDescriptionFile descriptionFile = this.getDescription(file);
-        if(descriptionFile == null) {
-            return false;
+    private ModuleScan loadJar(final File file) {
+        final ModuleScan scan = new ModuleScan(file);
+        if(!file.getName().endsWith(".jar")) {
+            return scan;
+        }
+
+        try {
+            long start = System.nanoTime();
+            final ModuleIndex.Entry entry = this.index == null ? null : this.index.lookup(file);
+            if(entry != null) {
+                // Unchanged since it was last indexed, the description and classes have already been checked
+                final ModuleDescriptionFile descriptionFile = entry.toDescriptionFile();
+                scan.setClasses(entry.getClasses());
+                this.timings.record(descriptionFile.getName(), ModuleTimings.Phase.DESCRIPTOR, System.nanoTime() - start);
+
+                start = System.nanoTime();
+                scan.setDescriptionFile(descriptionFile);
+                scan.setClassLoader(this.createLoader(scan));
+                this.timings.record(descriptionFile.getName(), ModuleTimings.Phase.RESOLVE, System.nanoTime() - start);
+                return scan;
+            }
+
+            final String description = this.getDescription(scan);
+            if(description == null) {
+                return scan;
+            }
+
+            final ModuleDescriptionFile descriptionFile = new JSON(description).marshal(ModuleDescriptionFile.class);
+            this.timings.record(descriptionFile.getName(), ModuleTimings.Phase.DESCRIPTOR, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            ModuleClassLoader classLoader = null;
+            try {
+                classLoader = this.createLoader(scan);
+                if(classLoader == null) {
+                    return scan;
+                }
+
+                try {
+                    Class.forName(descriptionFile.getMain(), false, classLoader);
+                } catch (final ClassNotFoundException ex) {
+                    scan.log("[ModuleManager] [loadJar] - Module '%s' has an invalid main class, path: %s",
+                            file.getName(),
+                            descriptionFile.getMain());
+                    return scan;
+                } catch (final NoClassDefFoundError ignored) { }
+
+                try {
+                    if(descriptionFile.getLoader() != null) {
+                        Class.forName(descriptionFile.getLoader(), false, classLoader);
+                    }
+                } catch (final ClassNotFoundException ex) {
+                    scan.log("[ModuleManager] [loadJar] - Module '%s' has an invalid Expansion Loader class, path: %s",
+                            file.getName(),
+                            descriptionFile.getLoader());
+                    return scan;
+                }
+
+                scan.setClassLoader(classLoader);
+            } finally {
+                // A loader which failed its checks is never registered, so its jar is closed here
+                if(scan.getClassLoader() != classLoader) {
+                    this.release(classLoader);
+                }
+                this.timings.record(descriptionFile.getName(), ModuleTimings.Phase.RESOLVE, System.nanoTime() - start);
+            }
+
+            if(this.index != null) {
+                this.index.store(file, description, descriptionFile, scan.getClasses());
+            }
+
+            scan.setDescriptionFile(descriptionFile);
+        } catch (final Throwable ex) {
+            scan.setError(ex);
         }
+        return scan;
+    }
 
-        final ModuleClassLoader classLoader;
+    /**
+     * Create the class loader for a scanned jar
+     *
+     * @param scan Scan of the jar
+     * @return ModuleClassLoader or null if the jar path is invalid
+     */
+    private ModuleClassLoader createLoader(final ModuleScan scan) {
         try {
-            classLoader = new ModuleClassLoader(file.toURI().toURL(), this.getClass().getClassLoader());
+            return new ModuleClassLoader(scan.getFile().toURI().toURL(), this.getClass().getClassLoader());
         } catch (final MalformedURLException ex) {
-            this.logger.info("[ModuleInstance] [loadJar] - Error loading URLClassLoader for '%s'\n%s",
-                    file.getName(),
+            scan.log("[ModuleInstance] [loadJar] - Error loading URLClassLoader for '%s'\n%s",
+                    scan.getFile().getName(),
                     ExceptionUtils.getStackTrace(ex));
+            return null;
+        }
+    }
+
+    /**
+     * Attempt to load all Modules in order, each wave of independent modules is loaded concurrently
+     */
+    private void load() {
+        this.run(this.defer(new HashSet<>(this.modules)), this.timed(ModuleTimings.Phase.LOAD, ModuleInstance::load), ModuleStatus.LOAD);
+    }
+
+    /**
+     * Enable all modules, each wave of independent modules is enabled concurrently
+     */
+    public final synchronized void enable() {
+        this.run(this.modules.stream()
+                .filter(instance -> instance.getStatus() != ModuleInstance.Status.LAZY)
+                .collect(Collectors.toSet()), this.timed(ModuleTimings.Phase.ENABLE, ModuleInstance::enable), ModuleStatus.ENABLE);
+
+        this.logger.info("[ModuleManager] - Modules {%s} have now been enabled.",
+                this.modules.stream()
+                        .map(instance -> instance.getDescriptionFile().getName())
+                        .collect(Collectors.joining(", ")));
+
+        this.timings.report(this.logger);
+        this.reportClassLoading();
+        if(this.directoryData != null) {
+            this.timings.save(new File(this.directoryData, "module-timings.json"));
+        }
+
+        if(this.directoryModules != null && Titan.INSTANCE.property("titan.module.watch").defaulting(false).asBoolean()) {
+            this.watcher = new ModuleWatcher(this.directoryModules,
+                    Titan.INSTANCE.property("titan.module.watch.debounce").defaulting(2000).asLong());
+            try {
+                this.watcher.start();
+                this.logger.info("[ModuleManager] - Watching '%s' for module changes", this.directoryModules.getPath());
+            } catch (final IOException ex) {
+                this.watcher = null;
+                this.logger.info("[ModuleManager] - Failed to watch the modules directory\n%s",
+                        ExceptionUtils.getStackTrace(ex));
+            }
+        }
+
+        if(this.directoryData != null && Titan.INSTANCE.property("titan.module.warmup").defaulting(false).asBoolean()) {
+            this.warmup = new ModuleWarmup(new File(this.directoryData, "module-classes.json"));
+            this.warmup.start(this.classLoaders, this.classIndex);
+        }
+
+        this.accounting.start(this.logger, Titan.INSTANCE.property("titan.module.accounting.interval").defaulting(60000).asLong());
+    }
+
+    /**
+     * Reload a module from its jar, swapping in a fresh class loader.
+     * Every module depending on it is shut down first and brought back up with it, nothing else is touched.
+     *
+     * @param name Name of the module
+     * @return Whether the module has been enabled again
+     */
+    public final synchronized boolean reload(final String name) {
+        final ModuleInstance target = this.getGraph().get(name);
+        if(target == null || target.getJarFile() == null) {
+            this.logger.info("[ModuleManager] - Module '%s' could not be reloaded as it is not loaded from a jar.", name);
             return false;
         }
 
-        try {
-            Class.forName(descriptionFile.getMain(), false, classLoader);
-        } catch (final ClassNotFoundException ex) {
-            this.logger.info("[ModuleManager] [loadJar] - Module '%s' has an invalid main class, path: %s",
-                    file.getName(),
-                    descriptionFile.getMain());
+        return this.reload(target);
+    }
+
+    /**
+     * Shut down a module along with every module depending on it, releasing their class loaders
+     *
+     * @param name Name of the module
+     * @return Whether the module was found and unloaded
+     */
+    public final synchronized boolean unload(final String name) {
+        final ModuleInstance target = this.getGraph().get(name);
+        if(target == null) {
+            this.logger.info("[ModuleManager] - Module '%s' could not be unloaded as it is not loaded.", name);
             return false;
-        } catch (final NoClassDefFoundError ignored) { }
+        }
 
-        try {
-            if(descriptionFile.getLoader() != null) {
-                Class.forName(descriptionFile.getLoader(), false, classLoader);
+        this.unload(this.getGraph().getAffected(target));
+        return true;
+    }
+
+    /**
+     * Handle a jar of the modules directory being added, replaced or removed
+     *
+     * @param file Jar which has changed
+     */
+    synchronized void handleChange(final File file) {
+        final ModuleInstance instance = this.modules.stream()
+                .filter(module -> module.getJarFile() != null && module.getJarFile().getName().equals(file.getName()))
+                .findFirst()
+                .orElse(null);
+
+        if(!file.exists()) {
+            if(instance != null) {
+                this.logger.info("[ModuleManager] - Module jar '%s' has been removed", file.getName());
+                this.unload(this.getGraph().getAffected(instance));
             }
-        } catch (final ClassNotFoundException ex) {
-            this.logger.info("[ModuleManager] [loadJar] - Module '%s' has an invalid Expansion Loader class, path: %s",
+            return;
+        }
+
+        if(instance != null) {
+            this.logger.info("[ModuleManager] - Module jar '%s' has been replaced", file.getName());
+            this.reload(instance);
+        } else {
+            // Jars pruned earlier, such as for missing this dependency, are installed along with it
+            final List<File> jars = this.getUnloadedJars();
+            if(!jars.contains(file)) {
+                jars.add(file);
+            }
+
+            this.logger.info("[ModuleManager] - Module jar '%s' has been added, installing {%s}",
                     file.getName(),
-                    descriptionFile.getLoader());
+                    jars.stream()
+                            .map(File::getName)
+                            .collect(Collectors.joining(", ")));
+            this.install(jars);
+        }
+    }
+
+    /**
+     * @return Jars of the modules directory which no loaded module was loaded from, in name order
+     */
+    private List<File> getUnloadedJars() {
+        final Set<String> loaded = this.modules.stream()
+                .map(ModuleInstance::getJarFile)
+                .filter(Objects::nonNull)
+                .map(File::getName)
+                .collect(Collectors.toSet());
+
+        final File[] files = this.directoryModules.listFiles((directory, name) -> name.endsWith(".jar") && !loaded.contains(name));
+        final List<File> jars = files == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(files));
+        Collections.sort(jars);
+        return jars;
+    }
+
+    /**
+     * Reload a module and its dependents from their jars
+     *
+     * @param target Module to be reloaded
+     * @return Whether the module has been enabled again
+     */
+    private boolean reload(final ModuleInstance target) {
+        final List<ModuleInstance> affected = this.getGraph().getAffected(target);
+        this.logger.info("[ModuleManager] - Reloading module '%s', affected modules {%s}",
+                target.getDescriptionFile().getName(),
+                affected.stream()
+                        .map(instance -> instance.getDescriptionFile().getName())
+                        .collect(Collectors.joining(", ")));
+
+        this.unload(affected);
+        final boolean success = this.install(affected.stream()
+                .map(ModuleInstance::getJarFile)
+                .collect(Collectors.toList())).stream()
+                .anyMatch(instance -> instance.getJarFile().equals(target.getJarFile())
+                        && (instance.getStatus() == ModuleInstance.Status.ENABLED || instance.getStatus() == ModuleInstance.Status.LAZY));
+
+        this.logger.info("[ModuleManager] - Module '%s' reload status: %s",
+                target.getDescriptionFile().getName(),
+                success ? "success" : "failed");
+        return success;
+    }
+
+    /**
+     * Shut down modules, dependents first, and release their class loaders
+     *
+     * @param affected Modules in dependency order
+     */
+    private void unload(final List<ModuleInstance> affected) {
+        this.stop(affected.stream()
+                .filter(instance -> instance.getStatus() == ModuleInstance.Status.ENABLED)
+                .collect(Collectors.toSet()));
+
+        for(int i = affected.size() - 1; i >= 0; i--) {
+            this.remove(affected.get(i));
+        }
+    }
+
+    /**
+     * Scan, load and enable jars while modules are running
+     *
+     * @param jars Jars to be installed
+     * @return Modules which were installed and enabled
+     */
+    private Set<ModuleInstance> install(final List<File> jars) {
+        final Set<ModuleInstance> previous = new HashSet<>(this.modules);
+        jars.stream()
+                .map(this::loadJar)
+                .forEach(this::register);
+        if(this.index != null) {
+            this.index.save();
+        }
+
+        this.checkDependencies(ModuleStatus.DEPEND);
+        final Set<ModuleInstance> installed = new HashSet<>(this.modules);
+        installed.removeAll(previous);
+
+        this.defer(installed);
+        this.run(installed, this.timed(ModuleTimings.Phase.LOAD, ModuleInstance::load), ModuleStatus.LOAD);
+        this.run(installed, this.timed(ModuleTimings.Phase.ENABLE, ModuleInstance::enable), ModuleStatus.ENABLE);
+
+        installed.retainAll(this.modules);
+        return installed;
+    }
+
+    /**
+     * Activate a lazy module, loading and enabling it along with any lazy modules it depends on
+     *
+     * @param name Name of the module
+     * @return Whether the module is active
+     */
+    public final boolean activate(final String name) {
+        final ModuleInstance instance = this.getGraph().get(name);
+        return instance != null && this.activate(instance) && instance.getStatus() == ModuleInstance.Status.ENABLED;
+    }
+
+    /**
+     * Activate a lazy module, every dependency is activated first.
+     * This is locked on the instance rather than the manager as it can be reached from class loading on any thread,
+     * a thread reaching it while another activates the module waits until that activation has finished.
+     *
+     * @param instance Module to be activated
+     * @return Whether the module is present and not lazy
+     */
+    final boolean activate(final ModuleInstance instance) {
+        synchronized(instance) {
+            if(instance.getStatus() != ModuleInstance.Status.LAZY) {
+                return this.modules.contains(instance);
+            }
+
+            // Cleared before anything runs so class loading from the module itself cannot activate it again
+            this.activating.add(instance);
+            instance.setStatus(ModuleInstance.Status.NON);
+            try {
+                return this.runActivation(instance);
+            } finally {
+                this.activating.remove(instance);
+            }
+        }
+    }
+
+    /**
+     * Activate the dependencies of a lazy module then load and enable it, removing it on failure
+     *
+     * @param instance Module to be activated, locked by the caller
+     * @return Whether the module was enabled
+     */
+    private boolean runActivation(final ModuleInstance instance) {
+        this.logger.info("[ModuleManager] - Activating lazy module '%s'", instance.getDescriptionFile().getName());
+
+        for(final ModuleInstance dependency : this.getGraph().getDependencies(instance)) {
+            if(!this.activate(dependency)) {
+                this.logger.info("[ModuleManager] - Module '%s' has failed to activate as dependency '%s' is not available.",
+                        instance.getDescriptionFile().getName(),
+                        dependency.getDescriptionFile().getName());
+                this.remove(instance);
+                return false;
+            }
+        }
+
+        if(!this.timed(ModuleTimings.Phase.LOAD, ModuleInstance::load).test(instance)) {
+            this.remove(instance);
             return false;
         }
 
-        this.modules.add(new ModuleInstance(file, descriptionFile, classLoader));
-        this.classLoaders.add(classLoader);
+        if(!this.timed(ModuleTimings.Phase.ENABLE, ModuleInstance::enable).test(instance)) {
+            // Same as a failed enable wave, anything the module managed to start is torn down first
+            try {
+                instance.shutdown();
+            } catch (final Throwable ignored) {}
+            this.remove(instance);
+            return false;
+        }
         return true;
     }
 
     /**
-     * Attempt to load all Modules in order
+     * Hold back lazy modules which no eagerly started module depends on, these are marked as LAZY.
+     * A lazy module an eager module depends on is started in its normal wave so its dependents always find it enabled,
+     * only modules needed by other lazy modules or requested through activate(name) are left for on demand activation.
+     *
+     * @param scope Modules about to be started, deferred modules are removed from it
+     * @return Modules to be started now
      */
-    private void load() {
-        for(final ModuleInstance instance : this.getOrdered()) {
-            if(!instance.load()) {
-                this.modules.remove(instance);
-                if(instance.getModule() != null) {
-                    this.loaders.remove(instance.getModule());
+    private Set<ModuleInstance> defer(final Set<ModuleInstance> scope) {
+        final ModuleGraph graph = this.getGraph();
+        final List<ModuleInstance> ordered = graph.getOrdered();
+        final Set<ModuleInstance> deferred = new LinkedHashSet<>();
+
+        // Dependents come later in the order, so walking it backwards decides them before their dependencies
+        for(int i = ordered.size() - 1; i >= 0; i--) {
+            final ModuleInstance instance = ordered.get(i);
+            if(scope.contains(instance)
+                    && instance.getDescriptionFile().isLazy()
+                    && deferred.containsAll(graph.getDependents(instance))) {
+                deferred.add(instance);
+            }
+        }
+
+        if(!deferred.isEmpty()) {
+            deferred.forEach(instance -> instance.setStatus(ModuleInstance.Status.LAZY));
+            this.logger.info("[ModuleManager] - Modules {%s} will be activated on demand",
+                    deferred.stream()
+                            .map(instance -> instance.getDescriptionFile().getName())
+                            .collect(Collectors.joining(", ")));
+        }
+
+        scope.removeAll(deferred);
+        return scope;
+    }
+
+    /**
+     * Run a lifecycle action over the modules wave by wave.
+     * A failed module is pruned along with its dependents and the pass carries on with the next wave.
+     *
+     * @param scope Modules the action is run for
+     * @param action Action to run, returning success
+     * @param status Status used for reporting pruned dependents
+     */
+    private void run(final Set<ModuleInstance> scope, final Predicate<ModuleInstance> action, final ModuleStatus status) {
+        final ModuleGraph graph = this.getGraph();
+        for(final List<ModuleInstance> wave : graph.getWaves()) {
+            final List<ModuleInstance> remaining = wave.stream()
+                    .filter(scope::contains)
+                    .filter(this.modules::contains)
+                    .collect(Collectors.toList());
+
+            final Set<ModuleInstance> failed = this.runWave(remaining, action);
+            if(failed.isEmpty()) {
+                continue;
+            }
+
+            if(status == ModuleStatus.ENABLE) {
+                failed.forEach(instance -> {
+                    try {
+                        instance.shutdown();
+                    } catch (final Throwable ignored) {}
+                });
+            }
+            this.prune(graph, failed, status);
+        }
+    }
+
+    /**
+     * Run an action for every module of a wave, concurrently unless 'titan.module.parallel' is false.
+     * No module of a wave depends on another in the same wave, so they are free to run together.
+     *
+     * @param wave Modules to be handled
+     * @param action Action to run, returning success
+     * @return Set of modules which failed the action
+     */
+    private Set<ModuleInstance> runWave(final List<ModuleInstance> wave, final Predicate<ModuleInstance> action) {
+        final Set<ModuleInstance> failed = new HashSet<>();
+        if(wave.size() <= 1 || !Titan.INSTANCE.property("titan.module.parallel").defaulting(true).asBoolean()) {
+            wave.stream()
+                    .filter(instance -> !action.test(instance))
+                    .forEach(failed::add);
+            return failed;
+        }
+
+        final ForkJoinPool pool = this.getWorkers();
+        final Map<ModuleInstance, ForkJoinTask<Boolean>> tasks = new LinkedHashMap<>();
+        wave.forEach(instance -> tasks.put(instance, pool.submit(() -> action.test(instance))));
+
+        tasks.forEach((instance, task) -> {
+            try {
+                if(!task.join()) {
+                    failed.add(instance);
                 }
+            } catch (final Throwable ex) {
+                this.logger.info("[ModuleManager] - Module '%s' threw during a parallel wave\n%s",
+                        instance.getDescriptionFile().getName(),
+                        ExceptionUtils.getStackTrace(ex));
+                failed.add(instance);
+            }
+        });
+        return failed;
+    }
+
+    /**
+     * Fetch the pool used for running module waves, created on first use
+     *
+     * @return Worker pool
+     */
+    private synchronized ForkJoinPool getWorkers() {
+        if(this.workers == null) {
+            final int threads = Titan.INSTANCE.property("titan.module.parallel.threads")
+                    .defaulting(Runtime.getRuntime().availableProcessors())
+                    .asInt();
 
-                this.checkDependencies(ModuleStatus.LOAD);
-                this.load();
-                break;
+            this.workers = new ForkJoinPool(Math.max(1, threads), pool -> {
+                final ForkJoinWorkerThread thread = ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+                thread.setName("titan-module-worker-" + thread.getPoolIndex());
+                thread.setDaemon(true);
+                return thread;
+            }, null, false);
+        }
+        return this.workers;
+    }
+
+    public final synchronized void shutdown() {
+        if(this.watcher != null) {
+            this.watcher.stop();
+            this.watcher = null;
+        }
+
+        if(this.warmup != null) {
+            this.warmup.stop();
+            if(this.warmup.isComplete()) {
+                this.warmup.record(this.classLoaders);
+            } else {
+                this.logger.info("[ModuleManager] - Module warmup did not finish, loaded classes have not been recorded");
             }
+            this.warmup = null;
+        }
+
+        this.stop(this.modules.stream()
+                .filter(instance -> instance.getStatus() != ModuleInstance.Status.LAZY)
+                .collect(Collectors.toSet()));
+
+        this.accounting.stop();
+        this.accounting.report(this.logger);
+
+        final List<ModuleInstance> ordered = new ArrayList<>(this.getGraph().getOrdered());
+        for(int i = ordered.size() - 1; i >= 0; i--) {
+            this.remove(ordered.get(i));
         }
     }
 
     /**
-     * Enable all modules
+     * Names of modules whose class loaders have been released, yet have not been collected after 'titan.module.leak.delay'
+     * milliseconds and a full garbage collection requested by the leak check.
+     * Something, such as a thread or a static field outside the module, still references their classes.
+     *
+     * @return Names of leaked modules
      */
-    public final void enable() {
-        for(final ModuleInstance instance : this.getOrdered()) {
-            if(!instance.enable()) {
-                this.modules.remove(instance);
-                if(instance.getModule() != null) {
-                    this.loaders.remove(instance.getModule());
+    public List<String> getLeakedModules() {
+        return this.leaks.getLeaked();
+    }
+
+    /**
+     * Shut down modules in reverse dependency waves, modules of a wave are shut down together.
+     * Each module is given 'titan.module.shutdown.timeout' milliseconds, a module exceeding it is left behind.
+     *
+     * @param scope Modules to be shut down
+     */
+    private void stop(final Set<ModuleInstance> scope) {
+        if(scope.isEmpty()) {
+            return;
+        }
+
+        final long timeout = Titan.INSTANCE.property("titan.module.shutdown.timeout").defaulting(30000).asLong();
+        final boolean parallel = Titan.INSTANCE.property("titan.module.parallel").defaulting(true).asBoolean();
+        final List<List<ModuleInstance>> waves = new ArrayList<>(this.getGraph().getWaves());
+        Collections.reverse(waves);
+
+        final List<String> timedOut = new ArrayList<>();
+        final List<String> failed = new ArrayList<>();
+        final Consumer<ModuleInstance> action = this.timedRun(ModuleTimings.Phase.SHUTDOWN, ModuleInstance::shutdown);
+
+        // Daemon threads so a module which never returns cannot hold the process open
+        final ExecutorService executor = Executors.newCachedThreadPool(new ThreadFactoryBuilder()
+                .setNameFormat("titan-module-shutdown-%d")
+                .setDaemon(true)
+                .build());
+        final long start = System.currentTimeMillis();
+        try {
+            for(final List<ModuleInstance> wave : waves) {
+                final List<ModuleInstance> remaining = wave.stream()
+                        .filter(scope::contains)
+                        .collect(Collectors.toList());
+
+                final Map<ModuleInstance, Future<?>> tasks = new LinkedHashMap<>();
+                for(final ModuleInstance instance : remaining) {
+                    tasks.put(instance, executor.submit(() -> action.accept(instance)));
+                    if(!parallel) {
+                        this.await(instance, tasks.remove(instance), timeout, timedOut, failed);
+                    }
                 }
-                try {
-                    instance.shutdown();
-                } catch (final Throwable ignored) {}
 
-                this.checkDependencies(ModuleStatus.ENABLE);
-                this.enable();
-                break;
+                final long deadline = System.currentTimeMillis() + timeout;
+                tasks.forEach((instance, task) -> this.await(instance, task,
+                        Math.max(0, deadline - System.currentTimeMillis()), timedOut, failed));
             }
+        } finally {
+            executor.shutdownNow();
         }
-        this.logger.info("[ModuleManager] - Modules {%s} have now been enabled.",
-                this.modules.stream()
-                        .map(instance -> instance.getDescriptionFile().getName())
-                        .collect(Collectors.joining(", ")));
+
+        this.logger.info("[ModuleManager] - Shutdown of %d module(s) completed in %d ms, timed out {%s}, failed {%s}",
+                scope.size(),
+                System.currentTimeMillis() - start,
+                String.join(", ", timedOut),
+                String.join(", ", failed));
     }
 
-    public final void shutdown() {
-        this.modules.forEach(ModuleInstance::shutdown);
+    /**
+     * Wait for the shutdown of a module to finish
+     *
+     * @param instance Module being shut down
+     * @param task Shutdown task
+     * @param timeout Milliseconds to wait
+     * @param timedOut Names of modules which did not finish in time
+     * @param failed Names of modules which failed to shut down
+     */
+    private void await(final ModuleInstance instance, final Future<?> task, final long timeout,
+                       final List<String> timedOut, final List<String> failed) {
+        try {
+            task.get(timeout, TimeUnit.MILLISECONDS);
+            if(instance.getStatus() != ModuleInstance.Status.DISABLED) {
+                failed.add(instance.getName());
+            }
+        } catch (final TimeoutException ex) {
+            task.cancel(true);
+            timedOut.add(instance.getName());
+            this.logger.info("[ModuleManager] - Module '%s' did not shut down within %d ms", instance.getName(), timeout);
+        } catch (final ExecutionException ex) {
+            failed.add(instance.getName());
+        } catch (final InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            failed.add(instance.getName());
+        }
+    }
+
+    /**
+     * Fetch class loading metrics of every module loaded from a jar
+     *
+     * @return Module name mapped to the metrics of its class loader
+     */
+    public final Map<String, ClassLoaderMetrics> getClassLoaderMetrics() {
+        final Map<String, ClassLoaderMetrics> metrics = new TreeMap<>(String.CASE_INSENSITIVE_ORDER);
+        this.classLoaders.stream()
+                .filter(loader -> loader.getInstance() != null)
+                .forEach(loader -> metrics.put(loader.getInstance().getName(), loader.getMetrics()));
+        return metrics;
+    }
+
+    /**
+     * Write the class loading metrics of every module, the module spending the most time first
+     */
+    private void reportClassLoading() {
+        final Map<String, ClassLoaderMetrics> metrics = this.getClassLoaderMetrics();
+        if(metrics.isEmpty()) {
+            return;
+        }
+
+        this.logger.info("[ModuleManager] - %-24s %8s %8s %8s %8s %10s %10s",
+                "Class loading", "defined", "cached", "global", "misses", "total ms", "p99 us");
+        metrics.entrySet().stream()
+                .sorted(Comparator.comparingDouble((Map.Entry<String, ClassLoaderMetrics> entry) -> entry.getValue().getTotalMillis()).reversed())
+                .forEach(entry -> this.logger.info("[ModuleManager] - %-24s %8d %8d %8d %8d %10.2f %10.2f",
+                        entry.getKey(),
+                        entry.getValue().getDefined(),
+                        entry.getValue().getCacheHits(),
+                        entry.getValue().getGlobalHits(),
+                        entry.getValue().getMisses(),
+                        entry.getValue().getTotalMillis(),
+                        entry.getValue().getP99Micros()));
+    }
+
+    /**
+     * Wrap a lifecycle action to record how long it takes for each module
+     *
+     * @param phase Phase being timed
+     * @param action Action to run, returning success
+     * @return Timed action
+     */
+    private Predicate<ModuleInstance> timed(final ModuleTimings.Phase phase, final Predicate<ModuleInstance> action) {
+        return instance -> {
+            final long start = System.nanoTime();
+            try {
+                return this.accounting.measure(instance, () -> action.test(instance));
+            } finally {
+                this.timings.record(instance.getName(), phase, System.nanoTime() - start);
+            }
+        };
+    }
+
+    /**
+     * Wrap a lifecycle action without a result to record how long it takes for each module
+     *
+     * @param phase Phase being timed
+     * @param action Action to run
+     * @return Timed action
+     */
+    private Consumer<ModuleInstance> timedRun(final ModuleTimings.Phase phase, final Consumer<ModuleInstance> action) {
+        return instance -> this.timed(phase, module -> {
+            action.accept(module);
+            return true;
+        }).test(instance);
     }
 
     /**
      * Check for Modules having their dependencies.
+     * Modules missing a dependency, or part of a dependency cycle, are removed along with everything depending on them.
+     * Modules only depending on a cycle are reported as missing that dependency.
      *
      * @param status Current status of Module to check against
      */
     private void checkDependencies(final ModuleStatus status) {
-        boolean missing = false;
-        for(final ModuleInstance instance : new HashSet<>(this.modules)) {
-            final Set<String> set = instance.missingDependencies(this.modules);
-            if(set.isEmpty()) {
-                continue;
+        final ModuleGraph graph = this.getGraph();
+        final Set<ModuleInstance> unresolved = new LinkedHashSet<>(graph.getCircular());
+        unresolved.addAll(graph.getIncomplete());
+
+        unresolved.forEach(instance -> {
+            instance.setStatus(ModuleInstance.Status.MISSING_DEPENDENCY);
+
+            if(graph.getCircular().contains(instance)) {
+                this.logger.info("[ModuleManager] - Module '%s' has a circular dependency {%s} and has now been unloaded.",
+                        instance.getDescriptionFile().getName(),
+                        graph.getDependencies(instance).stream()
+                                .filter(graph.getCircular()::contains)
+                                .map(dependency -> dependency.getDescriptionFile().getName())
+                                .collect(Collectors.joining(", ")));
+            } else {
+                this.logger.info(this.getMessage(status),
+                        instance.getDescriptionFile().getName(),
+                        String.join(", ", graph.getMissing(instance)));
+            }
+        });
+
+        this.prune(graph, unresolved, status);
+    }
+
+    /**
+     * Remove modules along with every module depending on them, directly or not.
+     * Runs in O(removed + dependencies) using the reverse edges of the graph.
+     *
+     * @param graph Graph the modules belong to
+     * @param roots Modules to be removed
+     * @param status Current status of Module used for reporting dependents
+     */
+    private void prune(final ModuleGraph graph, final Collection<ModuleInstance> roots, final ModuleStatus status) {
+        final Map<ModuleInstance, Set<String>> dependents = new LinkedHashMap<>();
+        final Deque<ModuleInstance> queue = new ArrayDeque<>(roots);
+        roots.forEach(this::remove);
+
+        while(!queue.isEmpty()) {
+            final ModuleInstance instance = queue.poll();
+            for(final ModuleInstance dependent : graph.getDependents(instance)) {
+                if(roots.contains(dependent)) {
+                    continue;
+                }
+
+                if(!dependents.containsKey(dependent)) {
+                    if(!this.modules.contains(dependent)) {
+                        continue;
+                    }
+
+                    this.remove(dependent);
+                    dependents.put(dependent, new LinkedHashSet<>());
+                    queue.add(dependent);
+                }
+                dependents.get(dependent).add(instance.getDescriptionFile().getName());
             }
+        }
+
+        dependents.forEach((instance, missing) -> {
+            instance.setStatus(ModuleInstance.Status.MISSING_DEPENDENCY);
+            this.logger.info(this.getMessage(status), instance.getDescriptionFile().getName(), String.join(", ", missing));
+        });
+    }
+
+    /**
+     * @param status Current status of Module
+     * @return Message used when a module is unloaded due to its dependencies
+     */
+    private String getMessage(final ModuleStatus status) {
+        switch(status) {
+            case DEPEND:
+                return "[ModuleManager] - Module '%s' is missing dependencies {%s} and has now been unloaded.";
+            case LOAD:
+                return "[ModuleManager] - Module '%s' has failed to load as dependencies {%s} failed to load.";
+            case ENABLE:
+                return "[ModuleManager] - Module '%s' has failed to enable as dependencies {%s} failed to enable.";
+            default:
+                return "ERROR";
+        }
+    }
 
+    /**
+     * Add a module, the graph is resolved again on next use
+     *
+     * @param instance Module to be added
+     */
+    private void addModule(final ModuleInstance instance) {
+        synchronized(this.graphLock) {
+            this.modules.add(instance);
+            this.graph = null;
+        }
+    }
+
+    /**
+     * Remove a module from use, dropping its expansion loader and releasing its class loader
+     *
+     * @param instance Module to be removed
+     */
+    private void remove(final ModuleInstance instance) {
+        synchronized(this.graphLock) {
             this.modules.remove(instance);
+            this.graph = null;
+        }
 
-            if(instance.getModule() != null) {
-                this.loaders.remove(instance.getModule());
+        if(instance.getModule() != null) {
+            this.instances.remove(instance.getModule());
+            if(this.loaders.remove(instance.getModule()) != null) {
+                this.dispatch = this.createDispatch();
             }
+        }
+        this.release(instance.getLoader());
+    }
 
-            final String message;
-            switch(status) {
-                case DEPEND:
-                    message = "[ModuleManager] - Module '%s' is missing dependencies {%s} and has now been unloaded.";
-                    break;
-                case LOAD:
-                    message = "[ModuleManager] - Module '%s' has failed to load as dependencies {%s} failed to load.";
-                    break;
-                case ENABLE:
-                    message = "[ModuleManager] - Module '%s' has failed to enable as dependencies {%s} failed to enable.";
-                    break;
-                default:
-                    message = "ERROR";
-            }
-            this.logger.info(message, instance.getDescriptionFile().getName(), String.join(", ", set));
-            missing = true;
+    /**
+     * Release the class loader of a module, dropping its cached classes and closing its jar
+     *
+     * @param loader Loader to be released
+     */
+    private void release(final ModuleClassLoader loader) {
+        if(loader == null) {
+            return;
         }
 
-        if(missing) {
-            this.checkDependencies(status);
+        // Loaders of registered modules are released once, scanned loaders which were never registered have no module
+        if(!this.classLoaders.remove(loader) && loader.getInstance() != null) {
+            return;
         }
+
+        final String name = loader.getInstance() == null ? loader.getURLs()[0].getFile() : loader.getInstance().getName();
+        this.classIndex.remove(loader);
+        EventBus.INSTANCE.release(loader);
+        ServiceRegistry.INSTANCE.release(loader);
+        ModuleScheduler.INSTANCE.release(loader);
+        try {
+            loader.close();
+        } catch (final IOException ex) {
+            this.logger.info("[ModuleManager] - Failed to close class loader\n%s",
+                    ExceptionUtils.getStackTrace(ex));
+        }
+
+        this.leaks.track(loader, name);
     }
 
     /**
      * Retrieve the module.json file from the specified File, handle exceptions for info
      *
-     * @param file File to check/fetch from
-     * @return Return the object of the file or throw exception and return null
+     * @param scan Scan of the File to check/fetch from
+     * @return Return the raw contents of the file or log the exception and return null
      */
-    private ModuleDescriptionFile getDescription(final File file) {
-        try {
-            final JarFile jar = new JarFile(file);
+    private String getDescription(final ModuleScan scan) {
+        final File file = scan.getFile();
+        try (JarFile jar = new JarFile(file)) {
             final JarEntry entry = jar.getJarEntry("module.json");
 
             if (entry == null) {
                 throw new FileNotFoundException("module.json");
             }
 
+            scan.setClasses(ModuleClassIndex.list(jar));
             try (BufferedReader br = new BufferedReader(new InputStreamReader(jar.getInputStream(entry), StandardCharsets.UTF_8))) {
-                return new JSON(br.lines().collect(Collectors.joining())).marshal(ModuleDescriptionFile.class);
+                return br.lines().collect(Collectors.joining());
             }
         } catch (final IOException ex) {
             if(ex instanceof FileNotFoundException) {
-                this.logger.info("[ModuleManager] [getDescription] - Module '%s' did not contain a module.json file",
+                scan.log("[ModuleManager] [getDescription] - Module '%s' did not contain a module.json file",
                         file.getName());
             } else {
-                this.logger.info("[ModuleManager] [getDescription] - Error loading ModuleDescriptionFile for '%s'\n%s",
+                scan.log("[ModuleManager] [getDescription] - Error loading ModuleDescriptionFile for '%s'\n%s",
                         file.getName(),
                         ExceptionUtils.getStackTrace(ex));
             }
@@ -340,42 +1153,119 @@ public enum ModuleManager {
      */
     public final void addLoader(final Module module, final ExpansionLoader loader) {
         this.loaders.put(module, loader);
+        this.dispatch = this.createDispatch();
+    }
+
+    /**
+     * Fetch the instance wrapping a module
+     *
+     * @param module Module being looked up
+     * @return ModuleInstance or null if the module is not registered
+     */
+    public final ModuleInstance getInstance(final Module module) {
+        final ModuleInstance cached = this.instances.get(module);
+        if(cached != null) {
+            return cached;
+        }
+
+        final ModuleInstance found = this.modules.stream()
+                .filter(instance -> instance.getModule() == module)
+                .findFirst()
+                .orElse(null);
+        if(found != null) {
+            this.instances.put(module, found);
+        }
+        return found;
     }
 
     /**
-     * Return an ordered list of Modules for which should be handled first
+     * Fetch the expansion loaders handling an expansion, resolved once per expansion class until the loaders change
      *
-     * @return List of all modules in order
+     * @param expansion Expansion to be handled
+     * @return Loaders whose expansion type the expansion is assignable to
      */
-    private List<ModuleInstance> getOrdered() {
-        final List<ModuleInstance> ordered = new ArrayList<>();
-        final Set<ModuleInstance> modules = new HashSet<>(this.modules);
+    public final List<ExpansionLoader> getLoaders(final Expansion expansion) {
+        return this.dispatch.get(expansion.getClass());
+    }
+
+    private ClassValue<List<ExpansionLoader>> createDispatch() {
+        return new ClassValue<List<ExpansionLoader>>() {
+            @Override
+            protected List<ExpansionLoader> computeValue(final Class<?> type) {
+                return Collections.unmodifiableList(ModuleManager.this.loaders.values().stream()
+                        .filter(loader -> loader.expansion().isAssignableFrom(type))
+                        .collect(Collectors.toList()));
+            }
+        };
+    }
 
-        while(!modules.isEmpty()) {
-            new HashSet<>(modules).stream()
-                    .filter(instance -> instance.missingDependencies(ordered).isEmpty())
-                    .forEach(instance -> {
-                        ordered.add(instance);
-                        modules.remove(instance);
-                    });
+    /**
+     * Fetch the dependency graph of all current modules, this is resolved once and reused until modules change.
+     * Safe to call from any thread, the graph returned is never null.
+     *
+     * @return Resolved ModuleGraph
+     */
+    public final ModuleGraph getGraph() {
+        final ModuleGraph current = this.graph;
+        if(current != null) {
+            return current;
         }
 
-        return ordered;
+        synchronized(this.graphLock) {
+            ModuleGraph resolved = this.graph;
+            if(resolved == null) {
+                resolved = new ModuleGraph(this.modules);
+                this.graph = resolved;
+            }
+            return resolved;
+        }
     }
 
     /**
-     * Check all current cached loaders for a specific class
+     * Find a class from any module, a lazy module owning the class is activated.
+     * Candidate loaders come from the class index so a lookup is a single probe, names no module owns are cached as misses.
      *
      * @param name Path to class
      * @return Class if found or null
      */
     public final Class<?> getClassByName(final String name) {
-        Class<?> clazz = null;
-        for (final ModuleClassLoader loader : this.classLoaders) {
-            try {
-                clazz = loader.findClass(name, false);
-            } catch (ClassNotFoundException ignored) {}
+        for (final ModuleClassLoader loader : this.classIndex.find(name)) {
+            final Class<?> clazz = this.findClass(loader, name);
+            if (clazz != null) {
+                return clazz;
+            }
+        }
 
+        this.classIndex.miss(name);
+        return null;
+    }
+
+    /**
+     * Find a class for a module, only the modules it depends on are checked.
+     * Candidates are tried in dependency order so the result does not depend on load order.
+     * A lazy module providing the class is activated before the class is returned.
+     *
+     * @param name Path to class
+     * @param requester Module the lookup is for, null checks all modules
+     * @return Class if found or null
+     */
+    public final Class<?> getClassByName(final String name, final ModuleInstance requester) {
+        if(requester == null) {
+            return this.getClassByName(name);
+        }
+
+        final Map<ModuleInstance, Integer> required = this.getGraph().getRequired(requester);
+        if(required.isEmpty()) {
+            return null;
+        }
+
+        final List<ModuleClassLoader> candidates = this.classIndex.find(name).stream()
+                .filter(loader -> required.containsKey(loader.getInstance()))
+                .sorted(Comparator.comparingInt(loader -> required.get(loader.getInstance())))
+                .collect(Collectors.toList());
+
+        for (final ModuleClassLoader loader : candidates) {
+            final Class<?> clazz = this.findClass(loader, name);
             if (clazz != null) {
                 return clazz;
             }
@@ -383,4 +1273,30 @@ public enum ModuleManager {
 
         return null;
     }
+
+    /**
+     * Check a single loader for a class, activating its module if it is lazy.
+     * A module another thread is still activating is waited on, its classes are only handed out once it is enabled.
+     *
+     * @param loader Loader to check
+     * @param name Path to class
+     * @return Class if found or null, also null if the module failed to activate
+     */
+    private Class<?> findClass(final ModuleClassLoader loader, final String name) {
+        Class<?> clazz = null;
+        try {
+            clazz = loader.findClass(name, false);
+        } catch (ClassNotFoundException ignored) {}
+
+        if (clazz != null) {
+            final ModuleInstance owner = loader.getInstance();
+            // Status is checked first, it is only cleared after the module is marked as activating
+            if(owner != null
+                    && (owner.getStatus() == ModuleInstance.Status.LAZY || this.activating.contains(owner))
+                    && !this.activate(owner)) {
+                return null;
+            }
+        }
+        return clazz;
+    }
 }
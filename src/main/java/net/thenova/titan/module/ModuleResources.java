@@ -0,0 +1,145 @@
+package net.thenova.titan.module;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.io.ByteStreams;
+import lombok.RequiredArgsConstructor;
+import net.thenova.titan.Titan;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+@RequiredArgsConstructor
+final class ModuleResources {
+
+    private final File file;
+
+    // Resources larger than this are read straight from the jar and never cached
+    private final int entryLimit = Titan.INSTANCE.property("titan.module.resource.entry").defaulting(64 * 1024).asInt();
+    private final Cache<String, byte[]> cache = CacheBuilder.newBuilder()
+            .maximumWeight(Titan.INSTANCE.property("titan.module.resource.cache").defaulting(1024 * 1024).asLong())
+            .<String, byte[]>weigher((name, bytes) -> bytes.length)
+            .build();
+
+    // A second handle next to the JarFile held by URLClassLoader, that one is private to the JDK and reading through
+    // jar: URLs instead goes through the JVM wide JarURLConnection cache, which closing the loader does not release.
+    // Both are closed along with the loader.
+    private ZipFile zip;
+    private Map<String, ZipEntry> entries;
+    // Set when the jar could not be opened, lookups are then left to URLClassLoader and opening is not retried
+    private boolean failed;
+
+    /**
+     * Check the index for a resource, directory entries match with or without their trailing slash as they do for a jar.
+     * If the jar could not be indexed this always returns true, so the caller falls back to URLClassLoader.
+     *
+     * @param name Resource name, as passed to ClassLoader.getResource
+     * @return Whether the jar may contain the resource
+     */
+    boolean contains(final String name) {
+        final Map<String, ZipEntry> entries = this.getEntries();
+        return entries == null || entries.containsKey(name) || entries.containsKey(name + "/");
+    }
+
+    /**
+     * @return Whether the jar has been indexed and can be read through this
+     */
+    boolean isAvailable() {
+        return this.getEntries() != null;
+    }
+
+    /**
+     * Read a resource from the jar, small resources are cached
+     *
+     * @param name Resource name
+     * @return Contents of the resource, null if the jar does not contain it or is not available
+     * @throws IOException Thrown if the jar could not be read
+     */
+    byte[] read(final String name) throws IOException {
+        final byte[] cached = this.cache.getIfPresent(name);
+        if(cached != null) {
+            return cached;
+        }
+
+        final Map<String, ZipEntry> entries = this.getEntries();
+        final ZipEntry entry = entries == null ? null : entries.get(name);
+        final ZipFile zip = this.getZip();
+        if(entry == null || zip == null) {
+            return null;
+        }
+
+        final byte[] bytes;
+        try (InputStream stream = zip.getInputStream(entry)) {
+            bytes = ByteStreams.toByteArray(stream);
+        }
+
+        if(bytes.length <= this.entryLimit) {
+            this.cache.put(name, bytes);
+        }
+        return bytes;
+    }
+
+    /**
+     * Build the index from the jars central directory the first time it is needed, the jar is then kept open
+     *
+     * @return Resource name -> entry, null if the jar could not be opened
+     */
+    private synchronized Map<String, ZipEntry> getEntries() {
+        if(this.entries == null && !this.failed) {
+            try {
+                final ZipFile zip = new ZipFile(this.file);
+                final Map<String, ZipEntry> entries = new HashMap<>();
+                Collections.list(zip.entries()).forEach(entry -> entries.put(entry.getName(), entry));
+
+                this.zip = zip;
+                this.entries = entries;
+            } catch (final IOException ex) {
+                this.failed = true;
+                Titan.INSTANCE.getLogger().info("[ModuleResources] - Failed to index resources of '%s', the class loader will be used\n%s",
+                        this.file.getName(),
+                        ExceptionUtils.getStackTrace(ex));
+            }
+        }
+        return this.entries;
+    }
+
+    private synchronized ZipFile getZip() {
+        return this.zip;
+    }
+
+    /**
+     * Close the jar and drop all cached resources
+     *
+     * @throws IOException Thrown if the jar could not be closed
+     */
+    synchronized void close() throws IOException {
+        this.cache.invalidateAll();
+        this.entries = Collections.emptyMap();
+        if(this.zip != null) {
+            this.zip.close();
+            this.zip = null;
+        }
+    }
+}
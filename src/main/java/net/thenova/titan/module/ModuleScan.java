@@ -0,0 +1,80 @@
+package net.thenova.titan.module;
+
+import de.arraying.lumberjack.LLogger;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import lombok.Setter;
+import net.thenova.titan.module.module.data.ModuleDescriptionFile;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+@Getter
+@RequiredArgsConstructor
+final class ModuleScan {
+
+    private final File file;
+
+    @Setter private ModuleDescriptionFile descriptionFile;
+    @Setter private ModuleClassLoader classLoader;
+    @Setter private Throwable error;
+    @Setter private List<String> classes = Collections.emptyList();
+
+    // Messages are held back so scans can run on any thread and still log in jar order
+    @Getter(AccessLevel.NONE)
+    private final List<Object[]> messages = new ArrayList<>();
+
+    /**
+     * Queue a message to be written once the scan is registered
+     *
+     * @param message Message format
+     * @param args Message arguments
+     */
+    void log(final String message, final Object... args) {
+        final Object[] entry = new Object[args.length + 1];
+        entry[0] = message;
+        System.arraycopy(args, 0, entry, 1, args.length);
+
+        this.messages.add(entry);
+    }
+
+    /**
+     * Write all queued messages to the logger
+     *
+     * @param logger Logger to be written to
+     */
+    void flush(final LLogger logger) {
+        for(final Object[] entry : this.messages) {
+            final Object[] args = new Object[entry.length - 1];
+            System.arraycopy(entry, 1, args, 0, args.length);
+
+            logger.info((String) entry[0], args);
+        }
+        this.messages.clear();
+    }
+
+    /**
+     * @return Whether the scan has produced a usable module
+     */
+    boolean isSuccess() {
+        return this.error == null && this.descriptionFile != null && this.classLoader != null;
+    }
+}
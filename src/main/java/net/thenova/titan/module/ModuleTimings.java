@@ -0,0 +1,159 @@
+package net.thenova.titan.module;
+
+import de.arraying.kotys.JSON;
+import de.arraying.lumberjack.LLogger;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import net.thenova.titan.Titan;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public final class ModuleTimings {
+
+    @Getter
+    @RequiredArgsConstructor
+    public enum Phase {
+        DESCRIPTOR("descriptor"),
+        RESOLVE("resolve"),
+        LOAD("load"),
+        ENABLE("enable"),
+        SHUTDOWN("shutdown");
+
+        private final String key;
+    }
+
+    // Module name -> phase key -> total nanoseconds
+    private final Map<String, Map<String, Long>> timings = new ConcurrentHashMap<>();
+
+    /**
+     * Record time spent by a module in a phase, repeated phases are added together
+     *
+     * @param module Name of the module
+     * @param phase Phase of the module
+     * @param nanos Time spent in nanoseconds
+     */
+    public void record(final String module, final Phase phase, final long nanos) {
+        this.record(module, phase.getKey(), nanos);
+    }
+
+    /**
+     * Record time spent by a module enabling an expansion loader
+     *
+     * @param module Name of the module
+     * @param loader Name of the expansion loader
+     * @param nanos Time spent in nanoseconds
+     */
+    public void recordExpansion(final String module, final String loader, final long nanos) {
+        this.record(module, "expansion:" + loader, nanos);
+    }
+
+    private void record(final String module, final String key, final long nanos) {
+        this.timings.computeIfAbsent(module == null ? "unknown" : module, name -> new ConcurrentHashMap<>())
+                .merge(key, nanos, Long::sum);
+    }
+
+    /**
+     * @param module Name of the module
+     * @param phase Phase to check
+     * @return Nanoseconds spent, 0 if never recorded
+     */
+    public long get(final String module, final Phase phase) {
+        return this.get(module).getOrDefault(phase.getKey(), 0L);
+    }
+
+    /**
+     * @param module Name of the module
+     * @return All recorded phases of the module in nanoseconds, expansion loaders are keyed as 'expansion:name'
+     */
+    public Map<String, Long> get(final String module) {
+        return Collections.unmodifiableMap(this.timings.getOrDefault(module, Collections.emptyMap()));
+    }
+
+    /**
+     * @return Names of all modules with timings, slowest first
+     */
+    public List<String> getModules() {
+        final List<String> modules = new ArrayList<>(this.timings.keySet());
+        modules.sort(Comparator.comparingLong(this::getTotal).reversed());
+        return modules;
+    }
+
+    /**
+     * @param module Name of the module
+     * @return Total nanoseconds spent across every phase, expansions are part of enable
+     */
+    public long getTotal(final String module) {
+        return Arrays.stream(Phase.values())
+                .mapToLong(phase -> this.get(module, phase))
+                .sum();
+    }
+
+    /**
+     * Write a summary table of all modules, slowest first
+     *
+     * @param logger Logger to be written to
+     */
+    void report(final LLogger logger) {
+        if(this.timings.isEmpty()) {
+            return;
+        }
+
+        logger.info("[ModuleTimings] - %-24s %10s %10s %10s %10s %10s", "Module (ms)", "descriptor", "resolve", "load", "enable", "total");
+        this.getModules().forEach(module -> logger.info("[ModuleTimings] - %-24s %10.2f %10.2f %10.2f %10.2f %10.2f",
+                module,
+                ModuleTimings.millis(this.get(module, Phase.DESCRIPTOR)),
+                ModuleTimings.millis(this.get(module, Phase.RESOLVE)),
+                ModuleTimings.millis(this.get(module, Phase.LOAD)),
+                ModuleTimings.millis(this.get(module, Phase.ENABLE)),
+                ModuleTimings.millis(this.getTotal(module))));
+    }
+
+    /**
+     * Write all timings as a JSON report in milliseconds
+     *
+     * @param file File to be written to
+     */
+    void save(final File file) {
+        final JSON json = new JSON();
+        this.getModules().forEach(module -> {
+            final JSON entry = new JSON();
+            this.get(module).forEach((key, nanos) -> entry.put(key, ModuleTimings.millis(nanos)));
+            entry.put("total", ModuleTimings.millis(this.getTotal(module)));
+
+            json.put(module, entry);
+        });
+
+        try {
+            Files.write(file.toPath(), json.marshal().getBytes(StandardCharsets.UTF_8));
+        } catch (final IOException ex) {
+            Titan.INSTANCE.getLogger().info("[ModuleTimings] - Failed to write timings report\n%s",
+                    ExceptionUtils.getStackTrace(ex));
+        }
+    }
+
+    private static double millis(final long nanos) {
+        return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,166 @@
+package net.thenova.titan.module;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.arraying.kotys.JSON;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import net.thenova.titan.Titan;
+import net.thenova.titan.module.module.ModuleInstance;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+@RequiredArgsConstructor
+final class ModuleWarmup {
+
+    // Module name -> classes its loader defined during the last run
+    private final File file;
+
+    private ExecutorService executor;
+    // Set once every module has been warmed, an interrupted warmup never completes
+    @Getter private volatile boolean complete;
+
+    /**
+     * Load the classes of every active module in the background.
+     * Classes recorded by a previous run are loaded and initialised, without a recording every class of the jar
+     * is loaded but left uninitialised as its static initialisers may never have run in a real run.
+     *
+     * @param loaders Loaders of all modules
+     * @param index Class index holding the classes of each jar
+     */
+    void start(final Collection<ModuleClassLoader> loaders, final ModuleClassIndex index) {
+        final Map<String, List<String>> recorded = this.read();
+        final int threads = Titan.INSTANCE.property("titan.module.warmup.threads").defaulting(1).asInt();
+        this.executor = Executors.newFixedThreadPool(Math.max(1, threads), new ThreadFactoryBuilder()
+                .setNameFormat("titan-module-warmup-%d")
+                .setPriority(Thread.MIN_PRIORITY)
+                .setDaemon(true)
+                .build());
+
+        final List<ModuleClassLoader> active = new ArrayList<>();
+        loaders.stream()
+                .filter(loader -> loader.getInstance() != null)
+                .filter(loader -> loader.getInstance().getStatus() == ModuleInstance.Status.ENABLED)
+                .forEach(active::add);
+
+        if(active.isEmpty()) {
+            this.complete = true;
+            return;
+        }
+
+        final AtomicInteger remaining = new AtomicInteger(active.size());
+        final AtomicInteger loaded = new AtomicInteger();
+        final AtomicInteger failed = new AtomicInteger();
+        final AtomicLong start = new AtomicLong(System.currentTimeMillis());
+
+        active.forEach(loader -> this.executor.execute(() -> {
+            final List<String> classes = recorded.get(loader.getInstance().getName());
+            final boolean initialise = classes != null;
+
+            // Recorded classes were requested by the module before so they stay recorded, a blind pass over the jar is
+            // kept out of the next recording. Classes the module requests after they were warmed are picked up next run.
+            ModuleClassLoader.setWarmup(!initialise);
+            try {
+                for(final String name : initialise ? classes : index.getClasses(loader)) {
+                    if(Thread.currentThread().isInterrupted()) {
+                        return;
+                    }
+
+                    try {
+                        Class.forName(name, initialise, loader);
+                        loaded.incrementAndGet();
+                    } catch (final Throwable ex) {
+                        failed.incrementAndGet();
+                    }
+                }
+            } finally {
+                ModuleClassLoader.setWarmup(false);
+            }
+
+            if(remaining.decrementAndGet() == 0) {
+                this.complete = true;
+                Titan.INSTANCE.getLogger().info("[ModuleWarmup] - Warmed %d class(es) of %d module(s) in %d ms, %d failed",
+                        loaded.get(),
+                        active.size(),
+                        System.currentTimeMillis() - start.get(),
+                        failed.get());
+            }
+        }));
+    }
+
+    /**
+     * Record the classes each module requested during this run for the next warmup.
+     * Classes defined by a warmup pass over the whole jar are left out, so a run without a recording does not make the next run initialise
+     * every class of the jar. Should only be called once warmup is complete.
+     *
+     * @param loaders Loaders of all modules
+     */
+    void record(final Collection<ModuleClassLoader> loaders) {
+        final JSON json = new JSON();
+        loaders.stream()
+                .filter(loader -> loader.getInstance() != null)
+                .forEach(loader -> json.put(loader.getInstance().getName(), String.join(",", loader.getRequestedClasses())));
+
+        try {
+            Files.write(this.file.toPath(), json.marshal().getBytes(StandardCharsets.UTF_8));
+        } catch (final IOException ex) {
+            Titan.INSTANCE.getLogger().info("[ModuleWarmup] - Failed to record loaded classes\n%s",
+                    ExceptionUtils.getStackTrace(ex));
+        }
+    }
+
+    /**
+     * Stop any warmup still running
+     */
+    void stop() {
+        if(this.executor != null) {
+            this.executor.shutdownNow();
+            this.executor = null;
+        }
+    }
+
+    /**
+     * @return Recorded classes of each module, empty if nothing has been recorded
+     */
+    private Map<String, List<String>> read() {
+        final Map<String, List<String>> recorded = new HashMap<>();
+        if(!this.file.exists()) {
+            return recorded;
+        }
+
+        try {
+            new JSON(this.file).raw().forEach((name, value) -> {
+                if(value instanceof String && !((String) value).isEmpty()) {
+                    recorded.put(name, Arrays.asList(((String) value).split(",")));
+                }
+            });
+        } catch (final Exception ex) {
+            Titan.INSTANCE.getLogger().info("[ModuleWarmup] - Failed to read recorded classes, jar class lists will be used\n%s",
+                    ExceptionUtils.getStackTrace(ex));
+        }
+        return recorded;
+    }
+}
@@ -0,0 +1,138 @@
+package net.thenova.titan.module;
+
+import net.thenova.titan.Titan;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.jar.JarFile;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+final class ModuleWatcher implements Runnable {
+
+    private final File directory;
+    private final long debounce;
+
+    // Jar name -> time of the last event seen for it
+    private final Map<String, Long> pending = new ConcurrentHashMap<>();
+
+    private WatchService service;
+    private Thread thread;
+
+    ModuleWatcher(final File directory, final long debounce) {
+        this.directory = directory;
+        this.debounce = debounce;
+    }
+
+    /**
+     * Start watching the directory on a daemon thread
+     *
+     * @throws IOException Thrown if the directory cannot be watched
+     */
+    void start() throws IOException {
+        this.service = FileSystems.getDefault().newWatchService();
+        this.directory.toPath().register(this.service,
+                StandardWatchEventKinds.ENTRY_CREATE,
+                StandardWatchEventKinds.ENTRY_MODIFY,
+                StandardWatchEventKinds.ENTRY_DELETE);
+
+        this.thread = new Thread(this, "titan-module-watcher");
+        this.thread.setDaemon(true);
+        this.thread.start();
+    }
+
+    /**
+     * Stop watching, changes which are still settling are dropped
+     */
+    void stop() {
+        if(this.thread != null) {
+            this.thread.interrupt();
+        }
+
+        try {
+            if(this.service != null) {
+                this.service.close();
+            }
+        } catch (final IOException ignored) { }
+    }
+
+    @Override
+    public void run() {
+        while(!Thread.currentThread().isInterrupted()) {
+            try {
+                final WatchKey key = this.service.poll(this.debounce, TimeUnit.MILLISECONDS);
+                if(key != null) {
+                    key.pollEvents().stream()
+                            .filter(event -> event.context() instanceof Path)
+                            .map(event -> ((Path) event.context()).getFileName().toString())
+                            .filter(name -> name.endsWith(".jar"))
+                            .forEach(name -> this.pending.put(name, System.currentTimeMillis()));
+                    key.reset();
+                }
+
+                this.flush();
+            } catch (final InterruptedException | ClosedWatchServiceException ex) {
+                return;
+            } catch (final Throwable ex) {
+                Titan.INSTANCE.getLogger().info("[ModuleWatcher] - Error handling module directory change\n%s",
+                        ExceptionUtils.getStackTrace(ex));
+            }
+        }
+    }
+
+    /**
+     * Hand over every jar which has been quiet for the debounce period and is fully written
+     */
+    private void flush() {
+        final long now = System.currentTimeMillis();
+        final Iterator<Map.Entry<String, Long>> iterator = this.pending.entrySet().iterator();
+
+        while(iterator.hasNext()) {
+            final Map.Entry<String, Long> entry = iterator.next();
+            if(now - entry.getValue() < this.debounce) {
+                continue;
+            }
+
+            final File file = new File(this.directory, entry.getKey());
+            if(file.exists() && !ModuleWatcher.isComplete(file)) {
+                // Still being copied in, wait for another quiet period
+                entry.setValue(now);
+                continue;
+            }
+
+            iterator.remove();
+            ModuleManager.INSTANCE.handleChange(file);
+        }
+    }
+
+    /**
+     * @param file Jar to check
+     * @return Whether the jar can be opened, a partially written jar has no central directory yet
+     */
+    private static boolean isComplete(final File file) {
+        try (JarFile ignored = new JarFile(file)) {
+            return true;
+        } catch (final IOException ex) {
+            return false;
+        }
+    }
+}
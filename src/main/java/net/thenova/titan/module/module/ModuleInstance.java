@@ -2,23 +2,28 @@ package net.thenova.titan.module.module;
 
 import de.arraying.kotys.JSONArray;
 import de.arraying.lumberjack.LLogger;
+import lombok.AccessLevel;
 import lombok.Getter;
 import lombok.RequiredArgsConstructor;
 import lombok.Setter;
 import net.thenova.titan.Titan;
+import net.thenova.titan.event.EventBus;
 import net.thenova.titan.module.ModuleClassLoader;
 import net.thenova.titan.module.ModuleManager;
 import net.thenova.titan.module.module.data.ModuleDescriptionFile;
+import net.thenova.titan.module.module.expansion.AsyncExpansionLoader;
+import net.thenova.titan.module.module.expansion.BatchExpansionLoader;
 import net.thenova.titan.module.module.expansion.Expansion;
 import net.thenova.titan.module.module.expansion.ExpansionLoader;
+import net.thenova.titan.scheduler.ModuleScheduler;
+import net.thenova.titan.service.ServiceRegistry;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 
 import java.io.File;
 import java.lang.reflect.InvocationTargetException;
-import java.util.Collection;
-import java.util.Collections;
-import java.util.HashSet;
-import java.util.Set;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
 
 /**
  * Copyright 2020 ipr0james
@@ -42,7 +47,8 @@ public class ModuleInstance {
         NON,
         MISSING_DEPENDENCY,
         ENABLED,
-        DISABLED
+        DISABLED,
+        LAZY
     }
 
     // Used for the module loading section
@@ -55,7 +61,11 @@ public class ModuleInstance {
     protected Module module;
 
     // Used during loading/init phases
-    @Setter private Status status = Status.NON;
+    // Read by class lookups on any thread to see whether the module still has to be activated
+    @Setter private volatile Status status = Status.NON;
+
+    // Expansions whose asynchronous enable was given up on while still running, they unload themselves if they succeed
+    @Getter(AccessLevel.NONE) private final Set<Expansion> abandoned = ConcurrentHashMap.newKeySet();
 
     public boolean load() {
         final LLogger logger = Titan.INSTANCE.getLogger();
@@ -128,25 +138,43 @@ public class ModuleInstance {
         logger.info("[ModuleInstance] - Attempting enable() for '%s'",
                 this.descriptionFile.getName());
 
+        this.abandoned.clear();
         try {
             this.module.enable();
 
-            if(this.module.expansions() != null && !this.module.expansions().isEmpty()) {
-                for (final Expansion expansion : this.module.expansions()) {
-                    final ExpansionLoader failed = ModuleManager.INSTANCE.getLoaders().values().stream()
-                            .filter(loader -> loader.expansion().isAssignableFrom(expansion.getClass()))
-                            .filter(loader -> !loader.enable(ModuleInstance.this, expansion))
-                            .findFirst()
-                            .orElse(null);
-
-                    if(failed != null ) {
-                        logger.info("[ModuleInstance] - enable() failed for module '%s' with loader '%s'",
-                                this.descriptionFile.getName(),
-                                failed.name());
-                        this.status = Status.NON;
-                        return false;
+            final Map<ExpansionLoader, List<Expansion>> grouped = this.group(this.module.expansions());
+
+            // Asynchronous loaders are all started first so they run alongside the synchronous ones
+            final List<Pending> pending = new ArrayList<>();
+            ExpansionLoader failed;
+            try {
+                grouped.forEach((loader, expansions) -> {
+                    if(loader instanceof AsyncExpansionLoader) {
+                        expansions.forEach(expansion -> pending.add(this.enableAsync((AsyncExpansionLoader) loader, expansion)));
                     }
+                });
+
+                failed = grouped.entrySet().stream()
+                        .filter(entry -> !(entry.getKey() instanceof AsyncExpansionLoader))
+                        .filter(entry -> !this.enable(entry.getKey(), entry.getValue()))
+                        .map(Map.Entry::getKey)
+                        .findFirst()
+                        .orElse(null);
+                if(failed == null) {
+                    failed = this.await(pending);
                 }
+            } catch (final Throwable ex) {
+                this.abandon(pending);
+                throw ex;
+            }
+
+            if(failed != null) {
+                this.abandon(pending);
+                logger.info("[ModuleInstance] - enable() failed for module '%s' with loader '%s'",
+                        this.descriptionFile.getName(),
+                        failed.name());
+                this.status = Status.NON;
+                return false;
             }
 
             this.status = Status.ENABLED;
@@ -163,26 +191,158 @@ public class ModuleInstance {
         }
     }
 
+    /**
+     * Enable the expansions handled by a loader, recording the time taken.
+     * Batch loaders receive every expansion at once, other loaders one at a time until one fails.
+     *
+     * @param loader Loader handling the expansions
+     * @param expansions Expansions being enabled
+     * @return Return enable success
+     */
+    private boolean enable(final ExpansionLoader loader, final List<Expansion> expansions) {
+        final long start = System.nanoTime();
+        try {
+            if(loader instanceof BatchExpansionLoader) {
+                return ((BatchExpansionLoader) loader).enable(this, expansions);
+            }
+            return expansions.stream().allMatch(expansion -> loader.enable(this, expansion));
+        } finally {
+            ModuleManager.INSTANCE.getTimings().recordExpansion(this.getName(), loader.name(), System.nanoTime() - start);
+        }
+    }
+
+    /**
+     * Start enabling an expansion with an asynchronous loader, the time taken is recorded on completion
+     *
+     * @param loader Loader handling the expansion
+     * @param expansion Expansion being enabled
+     * @return Pending enable of the expansion
+     */
+    private Pending enableAsync(final AsyncExpansionLoader loader, final Expansion expansion) {
+        final long start = System.nanoTime();
+        final CompletableFuture<Boolean> future = loader.enableAsync(this, expansion).toCompletableFuture();
+        future.whenComplete((success, ex) -> ModuleManager.INSTANCE.getTimings()
+                .recordExpansion(this.getName(), loader.name(), System.nanoTime() - start));
+        return new Pending(loader, expansion, future);
+    }
+
+    /**
+     * Wait for asynchronous expansions, all sharing a deadline of 'titan.module.expansion.timeout' milliseconds
+     *
+     * @param pending Pending enables
+     * @return Loader of the first expansion which failed or timed out, null if all succeeded
+     */
+    private ExpansionLoader await(final List<Pending> pending) {
+        final LLogger logger = Titan.INSTANCE.getLogger();
+        final long deadline = System.currentTimeMillis()
+                + Titan.INSTANCE.property("titan.module.expansion.timeout").defaulting(30000).asLong();
+
+        for(final Pending entry : pending) {
+            try {
+                if(!Boolean.TRUE.equals(entry.future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS))) {
+                    return entry.loader;
+                }
+            } catch (final TimeoutException ex) {
+                logger.info("[ModuleInstance] - Expansion loader '%s' did not finish enabling '%s' in time",
+                        entry.loader.name(),
+                        this.descriptionFile.getName());
+                return entry.loader;
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return entry.loader;
+            } catch (final ExecutionException | CancellationException ex) {
+                logger.info("[ModuleInstance] - Expansion loader '%s' failed enabling '%s'\n%s",
+                        entry.loader.name(),
+                        this.descriptionFile.getName(),
+                        ExceptionUtils.getStackTrace(ex));
+                return entry.loader;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Give up on asynchronous expansions after enable has failed.
+     * Each is marked abandoned, see isAbandoned, and given up to 'titan.module.expansion.grace' milliseconds to finish so
+     * shutdown() unloads it along with the rest. Any still running after that are left out of shutdown() and unload
+     * themselves if they do succeed, so nothing they open outlives the module.
+     * The stages are not cancelled, a cancelled CompletableFuture would hide a success completing afterwards.
+     *
+     * @param pending Pending enables
+     */
+    private void abandon(final List<Pending> pending) {
+        pending.forEach(entry -> this.abandoned.add(entry.expansion));
+
+        final long deadline = System.currentTimeMillis()
+                + Titan.INSTANCE.property("titan.module.expansion.grace").defaulting(5000).asLong();
+        for(final Pending entry : pending) {
+            try {
+                entry.future.get(Math.max(0, deadline - System.currentTimeMillis()), TimeUnit.MILLISECONDS);
+            } catch (final InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (final Exception ignored) {}
+        }
+
+        for(final Pending entry : pending) {
+            if(entry.future.isDone()) {
+                this.abandoned.remove(entry.expansion);
+                continue;
+            }
+
+            entry.future.whenComplete((success, ex) -> {
+                if(!Boolean.TRUE.equals(success)) {
+                    return;
+                }
+
+                Titan.INSTANCE.getLogger().info("[ModuleInstance] - Expansion loader '%s' finished enabling '%s' after it was abandoned, unloading",
+                        entry.loader.name(),
+                        this.descriptionFile.getName());
+                try {
+                    entry.loader.unload(this, entry.expansion);
+                } catch (final Throwable throwable) {
+                    Titan.INSTANCE.getLogger().info("[ModuleInstance] - Failed to unload abandoned expansion of '%s'\n%s",
+                            this.descriptionFile.getName(),
+                            ExceptionUtils.getStackTrace(throwable));
+                }
+            });
+        }
+    }
+
+    /**
+     * Asynchronous loaders may check this to stop early, the result of an abandoned enable is no longer awaited
+     *
+     * @param expansion Expansion being enabled
+     * @return Whether enable of the module has failed while the expansion was still being enabled
+     */
+    public boolean isAbandoned(final Expansion expansion) {
+        return this.abandoned.contains(expansion);
+    }
+
     public void shutdown() {
         final LLogger logger = Titan.INSTANCE.getLogger();
         logger.info("[ModuleInstance] - Attempting shutdown() for '%s'",
                 this.descriptionFile.getName());
         try {
             this.module.shutdown();
-            if(this.module.expansions() != null && !this.module.expansions().isEmpty()) {
-                for (final Expansion expansion : this.module.expansions()) {
-                    ModuleManager.INSTANCE.getLoaders()
-                            .values()
-                            .stream()
-                            .filter(loader -> loader.expansion().isAssignableFrom(expansion.getClass()))
-                            .forEach(loader -> {
-                                logger.info("[ModuleInstance] - Attempting shutdown() for module '%s' with expansion loader '%s'",
-                                        this.descriptionFile.getName(),
-                                        loader.name());
-                                loader.unload(ModuleInstance.this, expansion);
-                            });
+
+            // Abandoned expansions still being enabled unload themselves, see abandon(List)
+            final List<Expansion> registered = this.module.expansions();
+            final List<Expansion> enabled = registered == null ? null : registered.stream()
+                    .filter(expansion -> !this.abandoned.contains(expansion))
+                    .collect(Collectors.toList());
+
+            this.group(enabled).forEach((loader, expansions) -> {
+                logger.info("[ModuleInstance] - Attempting shutdown() for module '%s' with expansion loader '%s'",
+                        this.descriptionFile.getName(),
+                        loader.name());
+
+                if(loader instanceof BatchExpansionLoader) {
+                    ((BatchExpansionLoader) loader).unload(this, expansions);
+                } else {
+                    expansions.forEach(expansion -> loader.unload(this, expansion));
                 }
-            }
+            });
 
             this.status = Status.DISABLED;
         } catch (final Throwable ex) {
@@ -191,9 +351,38 @@ public class ModuleInstance {
             logger.info("[ModuleInstance] - Failed to disable module %s\n%s",
                     this.descriptionFile.getName(),
                     ExceptionUtils.getStackTrace(ex));
+        } finally {
+            ModuleScheduler.INSTANCE.shutdown(this);
+            EventBus.INSTANCE.unsubscribe(this);
+            ServiceRegistry.INSTANCE.unregister(this);
         }
     }
 
+    /**
+     * Group expansions by the loaders handling them, loaders are ordered by the first expansion they handle
+     *
+     * @param expansions Expansions of the module, may be null
+     * @return Loader -> expansions it handles
+     */
+    private Map<ExpansionLoader, List<Expansion>> group(final List<Expansion> expansions) {
+        final Map<ExpansionLoader, List<Expansion>> grouped = new LinkedHashMap<>();
+        if(expansions != null) {
+            expansions.forEach(expansion -> ModuleManager.INSTANCE.getLoaders(expansion)
+                    .forEach(loader -> grouped.computeIfAbsent(loader, key -> new ArrayList<>()).add(expansion)));
+        }
+        return grouped;
+    }
+
+    /**
+     * @return Name of the module, packaged modules are named by their class
+     */
+    public String getName() {
+        if(this.descriptionFile.getName() != null) {
+            return this.descriptionFile.getName();
+        }
+        return this.module == null ? "unknown" : this.module.getClass().getSimpleName();
+    }
+
     /**
      * Check for any missing dependencies, returning a set of names and disabling the module is any are found
      *
@@ -218,4 +407,11 @@ public class ModuleInstance {
 
         return missing;
     }
+
+    @RequiredArgsConstructor
+    private static final class Pending {
+        private final AsyncExpansionLoader loader;
+        private final Expansion expansion;
+        private final CompletableFuture<Boolean> future;
+    }
 }
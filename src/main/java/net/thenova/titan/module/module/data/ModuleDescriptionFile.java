@@ -1,5 +1,6 @@
 package net.thenova.titan.module.module.data;
 
+import de.arraying.kotys.JSON;
 import de.arraying.kotys.JSONArray;
 import de.arraying.kotys.JSONField;
 import lombok.Getter;
@@ -30,5 +31,18 @@ public final class ModuleDescriptionFile {
     @JSONField(key = "url") private String url;
 
     @JSONField(key = "dependency") private JSONArray dependency;
+
+    // Executor provided by Titan, {"type": "platform" | "virtual", "threads": 4, "queue": 10000}
+    @JSONField(key = "executor") private JSON executor;
+
+    // "lazy" defers loading and enabling until the module is first used
+    @JSONField(key = "activation") private String activation;
+
+    /**
+     * @return Whether the module should only be activated on demand
+     */
+    public boolean isLazy() {
+        return "lazy".equalsIgnoreCase(this.activation);
+    }
 }
 
@@ -0,0 +1,40 @@
+package net.thenova.titan.module.module.expansion;
+
+import net.thenova.titan.module.module.ModuleInstance;
+
+import java.util.concurrent.CompletionStage;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public interface AsyncExpansionLoader extends ExpansionLoader {
+
+    /**
+     * Start loading of a module without blocking, used for loaders doing I/O such as opening pools or binding ports.
+     * Every asynchronous expansion of a module is started before any is awaited.
+     * If enabling the module fails meanwhile, ModuleInstance.isAbandoned(expansion) turns true and the loader may stop early,
+     * an abandoned expansion which still completes successfully is unloaded again.
+     *
+     * @param instance ModuleInstance being enabled
+     * @param expansion Expansion being enabled
+     * @return Stage completing with the enable success
+     */
+    CompletionStage<Boolean> enableAsync(final ModuleInstance instance, final Expansion expansion);
+
+    @Override
+    default boolean enable(final ModuleInstance instance, final Expansion expansion) {
+        return Boolean.TRUE.equals(this.enableAsync(instance, expansion).toCompletableFuture().join());
+    }
+}
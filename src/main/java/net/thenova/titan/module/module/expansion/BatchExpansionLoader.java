@@ -0,0 +1,64 @@
+package net.thenova.titan.module.module.expansion;
+
+import net.thenova.titan.module.module.ModuleInstance;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public interface BatchExpansionLoader extends ExpansionLoader {
+
+    /**
+     * Handle loading of all expansions of a module handled by this loader at once
+     *
+     * @param instance ModuleInstance being enabled
+     * @param expansions Expansions of the module, in the order the module returned them
+     * @return Return enable success
+     */
+    boolean enable(final ModuleInstance instance, final List<Expansion> expansions);
+
+    /**
+     * Handle reloading of all expansions of a module handled by this loader at once
+     *
+     * @param instance ModuleInstance being reloaded
+     * @param expansions Expansions of the module
+     */
+    void reload(final ModuleInstance instance, final List<Expansion> expansions);
+
+    /**
+     * Handle unloading of all expansions of a module handled by this loader at once
+     *
+     * @param instance ModuleInstance being unloaded
+     * @param expansions Expansions of the module
+     */
+    void unload(final ModuleInstance instance, final List<Expansion> expansions);
+
+    @Override
+    default boolean enable(final ModuleInstance instance, final Expansion expansion) {
+        return this.enable(instance, Collections.singletonList(expansion));
+    }
+
+    @Override
+    default void reload(final ModuleInstance instance, final Expansion expansion) {
+        this.reload(instance, Collections.singletonList(expansion));
+    }
+
+    @Override
+    default void unload(final ModuleInstance instance, final Expansion expansion) {
+        this.unload(instance, Collections.singletonList(expansion));
+    }
+}
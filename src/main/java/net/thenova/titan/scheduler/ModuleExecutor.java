@@ -0,0 +1,135 @@
+package net.thenova.titan.scheduler;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import net.thenova.titan.Titan;
+import net.thenova.titan.module.ModuleManager;
+import net.thenova.titan.module.module.ModuleInstance;
+
+import java.util.Set;
+import java.util.concurrent.*;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+@Getter
+public final class ModuleExecutor implements Executor {
+
+    private final ModuleInstance owner;
+    private final boolean virtual;
+
+    @Getter(AccessLevel.NONE) private final ExecutorService executor;
+    @Getter(AccessLevel.PACKAGE) private final TimerWheel wheel;
+    @Getter(AccessLevel.NONE) private final Set<ScheduledTask> scheduled = ConcurrentHashMap.newKeySet();
+
+    ModuleExecutor(final ModuleInstance owner, final ExecutorService executor, final boolean virtual, final TimerWheel wheel) {
+        this.owner = owner;
+        this.executor = executor;
+        this.virtual = virtual;
+        this.wheel = wheel;
+    }
+
+    /**
+     * Run a task on the modules threads
+     *
+     * @param task Task to be run
+     * @throws RejectedExecutionException Thrown if the queue is full or the module has shut down
+     */
+    @Override
+    public void execute(final Runnable task) {
+        this.executor.execute(ModuleManager.INSTANCE.getAccounting().wrap(this.owner, task));
+    }
+
+    /**
+     * Run a task on the modules threads
+     *
+     * @param task Task to be run
+     * @return Future of the result
+     * @throws RejectedExecutionException Thrown if the queue is full or the module has shut down
+     */
+    public <T> Future<T> submit(final Callable<T> task) {
+        final FutureTask<T> future = new FutureTask<>(task);
+        this.execute(future);
+        return future;
+    }
+
+    /**
+     * Run a task on the modules threads once a delay has passed, delays are accurate to 'titan.scheduler.tick'
+     *
+     * @param task Task to be run
+     * @param delay Delay before running
+     * @param unit Unit of the delay
+     * @return Task which can be cancelled
+     */
+    public ScheduledTask schedule(final Runnable task, final long delay, final TimeUnit unit) {
+        return this.add(new ScheduledTask(this, task, 0), unit.toNanos(delay));
+    }
+
+    /**
+     * Run a task on the modules threads repeatedly, each run starts a period after the previous one finished
+     *
+     * @param task Task to be run
+     * @param delay Delay before the first run
+     * @param period Delay between the end of a run and the start of the next
+     * @param unit Unit of the delays
+     * @return Task which can be cancelled
+     */
+    public ScheduledTask scheduleWithFixedDelay(final Runnable task, final long delay, final long period, final TimeUnit unit) {
+        if(period <= 0) {
+            throw new IllegalArgumentException("Period must be positive");
+        }
+        return this.add(new ScheduledTask(this, task, unit.toNanos(period)), unit.toNanos(delay));
+    }
+
+    private ScheduledTask add(final ScheduledTask task, final long delay) {
+        if(this.executor.isShutdown()) {
+            throw new RejectedExecutionException("Executor of module '" + this.owner.getName() + "' has shut down");
+        }
+
+        this.scheduled.add(task);
+        task.start(delay);
+        return task;
+    }
+
+    void remove(final ScheduledTask task) {
+        this.scheduled.remove(task);
+    }
+
+    boolean isShutdown() {
+        return this.executor.isShutdown();
+    }
+
+    /**
+     * Cancel all scheduled tasks and let queued tasks finish, anything still running after the timeout is interrupted
+     *
+     * @param timeout Milliseconds to wait for queued tasks
+     */
+    void shutdown(final long timeout) {
+        this.scheduled.forEach(ScheduledTask::cancel);
+        this.executor.shutdown();
+
+        try {
+            if(!this.executor.awaitTermination(timeout, TimeUnit.MILLISECONDS)) {
+                Titan.INSTANCE.getLogger().info("[ModuleExecutor] - Module '%s' tasks did not finish within %d ms, %d queued task(s) cancelled",
+                        this.owner.getName(),
+                        timeout,
+                        this.executor.shutdownNow().size());
+            }
+        } catch (final InterruptedException ex) {
+            this.executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
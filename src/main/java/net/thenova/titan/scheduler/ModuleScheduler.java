@@ -0,0 +1,181 @@
+package net.thenova.titan.scheduler;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import de.arraying.kotys.JSON;
+import net.thenova.titan.Titan;
+import net.thenova.titan.module.ModuleClassLoader;
+import net.thenova.titan.module.ModuleManager;
+import net.thenova.titan.module.module.Module;
+import net.thenova.titan.module.module.ModuleInstance;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import java.lang.reflect.Method;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.WeakHashMap;
+import java.util.concurrent.*;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public enum ModuleScheduler {
+    INSTANCE;
+
+    private final Map<ModuleInstance, ModuleExecutor> executors = new ConcurrentHashMap<>();
+    // Modules whose executor has been shut down, they are never given a new one. Weak so released modules can be collected
+    private final Set<ModuleInstance> stopped = Collections.synchronizedSet(Collections.newSetFromMap(new WeakHashMap<>()));
+    private final TimerWheel wheel = TimerWheel.create();
+
+    /**
+     * Fetch the executor of a module, created on first use from the 'executor' section of its module.json.
+     * Available while the module is loading, enabling or activating and once it is enabled.
+     * A module which has shut down, or been unloaded, is refused so no thread pool outlives it.
+     *
+     * @param module Module owning the executor
+     * @return ModuleExecutor, shut down along with the module
+     * @throws IllegalStateException Thrown if the module is not registered or has shut down
+     */
+    public ModuleExecutor getExecutor(final Module module) {
+        final ModuleInstance instance = ModuleManager.INSTANCE.getInstance(module);
+        if(instance == null) {
+            throw new IllegalStateException("Module " + module.getClass().getName() + " is not registered");
+        }
+
+        // Checked within computeIfAbsent so a concurrent shutdown either sees the new executor or prevents it
+        return this.executors.computeIfAbsent(instance, key -> {
+            if(this.stopped.contains(key)
+                    || key.getStatus() == ModuleInstance.Status.DISABLED
+                    || key.getStatus() == ModuleInstance.Status.MISSING_DEPENDENCY) {
+                throw new IllegalStateException("Module " + key.getName() + " has shut down");
+            }
+            return this.create(key);
+        });
+    }
+
+    /**
+     * Drain and stop the executor of a module, waiting up to 'titan.module.executor.drain' milliseconds
+     *
+     * @param instance Module which is shutting down
+     */
+    public void shutdown(final ModuleInstance instance) {
+        this.stopped.add(instance);
+        final ModuleExecutor executor = this.executors.remove(instance);
+        if(executor != null) {
+            executor.shutdown(Titan.INSTANCE.property("titan.module.executor.drain").defaulting(5000).asLong());
+        }
+    }
+
+    /**
+     * Stop the executor of a module whose class loader is released, without waiting for queued tasks
+     *
+     * @param loader Loader being released
+     */
+    public void release(final ModuleClassLoader loader) {
+        if(loader.getInstance() != null) {
+            this.stopped.add(loader.getInstance());
+        }
+
+        this.executors.keySet().stream()
+                .filter(instance -> instance.getLoader() == loader)
+                .forEach(instance -> {
+                    final ModuleExecutor executor = this.executors.remove(instance);
+                    if(executor != null) {
+                        executor.shutdown(0);
+                    }
+                });
+    }
+
+    private ModuleExecutor create(final ModuleInstance instance) {
+        final JSON config = instance.getDescriptionFile().getExecutor();
+        final String name = "titan-" + instance.getName().toLowerCase(Locale.ROOT).replace(' ', '-') + "-%d";
+
+        if(config != null && config.has("type") && "virtual".equalsIgnoreCase(config.string("type"))) {
+            final ExecutorService virtual = ModuleScheduler.createVirtual(name);
+            if(virtual != null) {
+                return new ModuleExecutor(instance, virtual, true, this.wheel);
+            }
+
+            Titan.INSTANCE.getLogger().info("[ModuleScheduler] - Virtual threads are not available for module '%s', using platform threads",
+                    instance.getName());
+        }
+
+        final int threads = ModuleScheduler.setting(instance, config, "threads",
+                Titan.INSTANCE.property("titan.module.executor.threads").defaulting(4).asInt());
+        final int queue = ModuleScheduler.setting(instance, config, "queue",
+                Titan.INSTANCE.property("titan.module.executor.queue").defaulting(10000).asInt());
+
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(queue),
+                new ThreadFactoryBuilder()
+                        .setNameFormat(name)
+                        .setDaemon(true)
+                        .build());
+        executor.allowCoreThreadTimeOut(true);
+        return new ModuleExecutor(instance, executor, false, this.wheel);
+    }
+
+    /**
+     * Read a size of the executor configuration, a value below 1 is logged and replaced by the default
+     *
+     * @param instance Module the executor is for
+     * @param config Executor configuration of the module, may be null
+     * @param key Key of the value
+     * @param defaulting Value used when the module does not set one
+     * @return Size to be used, at least 1
+     */
+    private static int setting(final ModuleInstance instance, final JSON config, final String key, final int defaulting) {
+        final int fallback = Math.max(1, defaulting);
+        if(config == null || !config.has(key)) {
+            return fallback;
+        }
+
+        final int value = config.integer(key);
+        if(value < 1) {
+            Titan.INSTANCE.getLogger().info("[ModuleScheduler] - Module '%s' has an invalid executor '%s' value %d, using %d",
+                    instance.getName(),
+                    key,
+                    value,
+                    fallback);
+            return fallback;
+        }
+        return value;
+    }
+
+    /**
+     * Create a thread per task executor of named virtual threads, looked up reflectively as Titan targets Java 8
+     *
+     * @param name Name format of the threads
+     * @return ExecutorService or null if the runtime has no virtual threads
+     */
+    private static ExecutorService createVirtual(final String name) {
+        try {
+            final Class<?> builder = Class.forName("java.lang.Thread$Builder");
+            Object virtual = Thread.class.getMethod("ofVirtual").invoke(null);
+            virtual = builder.getMethod("name", String.class, long.class).invoke(virtual, name.replace("%d", ""), 0L);
+
+            final ThreadFactory factory = (ThreadFactory) builder.getMethod("factory").invoke(virtual);
+            final Method create = Executors.class.getMethod("newThreadPerTaskExecutor", ThreadFactory.class);
+            return (ExecutorService) create.invoke(null, factory);
+        } catch (final ReflectiveOperationException ex) {
+            return null;
+        } catch (final Exception ex) {
+            Titan.INSTANCE.getLogger().info("[ModuleScheduler] - Failed to create virtual thread executor\n%s",
+                    ExceptionUtils.getStackTrace(ex));
+            return null;
+        }
+    }
+}
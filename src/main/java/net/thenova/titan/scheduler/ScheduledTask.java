@@ -0,0 +1,105 @@
+package net.thenova.titan.scheduler;
+
+import net.thenova.titan.Titan;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public final class ScheduledTask {
+
+    private final ModuleExecutor executor;
+    private final Runnable task;
+    // Nanoseconds between the end of one run and the start of the next, 0 if the task runs once
+    private final long period;
+
+    private volatile TimerWheel.Timeout timeout;
+    private volatile boolean cancelled;
+    // Whether the last attempt to queue a run was rejected, only touched by the wheel thread
+    private boolean rejected;
+
+    ScheduledTask(final ModuleExecutor executor, final Runnable task, final long period) {
+        this.executor = executor;
+        this.task = task;
+        this.period = period;
+    }
+
+    void start(final long delay) {
+        this.timeout = this.executor.getWheel().schedule(this::fire, delay);
+    }
+
+    /**
+     * Stop the task from running again, a run already in progress is not interrupted
+     */
+    public void cancel() {
+        this.cancelled = true;
+
+        final TimerWheel.Timeout timeout = this.timeout;
+        if(timeout != null) {
+            timeout.cancel();
+        }
+        this.executor.remove(this);
+    }
+
+    public boolean isCancelled() {
+        return this.cancelled;
+    }
+
+    private void fire() {
+        if(this.cancelled) {
+            return;
+        }
+
+        try {
+            this.executor.execute(this::run);
+            this.rejected = false;
+        } catch (final RejectedExecutionException ex) {
+            if(this.executor.isShutdown()) {
+                this.cancel();
+                return;
+            }
+
+            // The queue of the module is full, the run is retried each tick until it is accepted
+            if(!this.rejected) {
+                this.rejected = true;
+                Titan.INSTANCE.getLogger().info("[ScheduledTask] - Task queue of module '%s' is full, scheduled task will be retried",
+                        this.executor.getOwner().getName());
+            }
+            this.start(0);
+        }
+    }
+
+    private void run() {
+        if(this.cancelled) {
+            return;
+        }
+
+        try {
+            this.task.run();
+        } catch (final Throwable ex) {
+            Titan.INSTANCE.getLogger().info("[ScheduledTask] - Scheduled task of module '%s' failed\n%s",
+                    this.executor.getOwner().getName(),
+                    ExceptionUtils.getStackTrace(ex));
+        } finally {
+            if(this.period > 0 && !this.cancelled) {
+                this.start(this.period);
+            } else {
+                this.executor.remove(this);
+            }
+        }
+    }
+}
@@ -0,0 +1,154 @@
+package net.thenova.titan.scheduler;
+
+import com.google.common.util.concurrent.ThreadFactoryBuilder;
+import net.thenova.titan.Titan;
+import org.apache.commons.lang3.exception.ExceptionUtils;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.Iterator;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+final class TimerWheel {
+
+    private final long tick;
+    private final int mask;
+    private final Deque<Timeout>[] buckets;
+
+    // Timeouts added since the last tick, only the worker thread touches the buckets
+    private final Queue<Timeout> pending = new ConcurrentLinkedQueue<>();
+    private final long start = System.nanoTime();
+
+    private Thread worker;
+    private long ticks;
+
+    /**
+     * @param tick Duration of a single tick, timeouts fire up to one tick late
+     * @param size Number of buckets, rounded up to a power of two
+     */
+    @SuppressWarnings("unchecked")
+    TimerWheel(final long tick, final int size) {
+        this.tick = Math.max(1, tick);
+
+        final int buckets = Integer.highestOneBit(Math.max(1, size - 1)) << 1;
+        this.mask = buckets - 1;
+        this.buckets = (Deque<Timeout>[]) new Deque<?>[buckets];
+        for(int i = 0; i < buckets; i++) {
+            this.buckets[i] = new ArrayDeque<>();
+        }
+    }
+
+    /**
+     * Run a task once a delay has passed, on the wheel thread so the task must only hand work off
+     *
+     * @param task Task to be run
+     * @param delay Delay in nanoseconds
+     * @return Timeout which can be cancelled
+     */
+    Timeout schedule(final Runnable task, final long delay) {
+        final Timeout timeout = new Timeout(task, System.nanoTime() - this.start + Math.max(0, delay));
+        this.pending.add(timeout);
+        this.start();
+        return timeout;
+    }
+
+    private synchronized void start() {
+        if(this.worker == null) {
+            this.worker = new ThreadFactoryBuilder()
+                    .setNameFormat("titan-timer")
+                    .setDaemon(true)
+                    .build()
+                    .newThread(this::run);
+            this.worker.start();
+        }
+    }
+
+    private void run() {
+        while(!Thread.currentThread().isInterrupted()) {
+            final long deadline = (this.ticks + 1) * this.tick;
+            long wait;
+            while((wait = deadline - (System.nanoTime() - this.start)) > 0) {
+                LockSupport.parkNanos(this, wait);
+            }
+
+            this.transfer();
+            this.expire(this.buckets[(int) (this.ticks & this.mask)]);
+            this.ticks++;
+        }
+    }
+
+    private void transfer() {
+        Timeout timeout;
+        while((timeout = this.pending.poll()) != null) {
+            if(timeout.cancelled) {
+                continue;
+            }
+
+            final long due = Math.max(timeout.deadline / this.tick, this.ticks);
+            timeout.rounds = (due - this.ticks) / this.buckets.length;
+            this.buckets[(int) (due & this.mask)].add(timeout);
+        }
+    }
+
+    private void expire(final Deque<Timeout> bucket) {
+        final Iterator<Timeout> iterator = bucket.iterator();
+        while(iterator.hasNext()) {
+            final Timeout timeout = iterator.next();
+            if(timeout.cancelled) {
+                iterator.remove();
+            } else if(timeout.rounds <= 0) {
+                iterator.remove();
+                try {
+                    timeout.task.run();
+                } catch (final Throwable ex) {
+                    Titan.INSTANCE.getLogger().info("[TimerWheel] - Timer task failed\n%s",
+                            ExceptionUtils.getStackTrace(ex));
+                }
+            } else {
+                timeout.rounds--;
+            }
+        }
+    }
+
+    static TimerWheel create() {
+        return new TimerWheel(
+                TimeUnit.MILLISECONDS.toNanos(Titan.INSTANCE.property("titan.scheduler.tick").defaulting(10).asLong()),
+                Titan.INSTANCE.property("titan.scheduler.wheel").defaulting(512).asInt());
+    }
+
+    static final class Timeout {
+
+        private final Runnable task;
+        private final long deadline;
+
+        private long rounds;
+        private volatile boolean cancelled;
+
+        private Timeout(final Runnable task, final long deadline) {
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        void cancel() {
+            this.cancelled = true;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package net.thenova.titan.service;
+
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.RequiredArgsConstructor;
+import net.thenova.titan.module.module.ModuleInstance;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+@Getter
+@RequiredArgsConstructor(access = AccessLevel.PACKAGE)
+public final class ServiceRegistration<T> {
+
+    // Module providing the service, null if provided by Titan or its host
+    private final ModuleInstance provider;
+    private final Class<T> type;
+    private final T service;
+    private final int priority;
+
+    /**
+     * Remove the service from the registry
+     */
+    public void unregister() {
+        ServiceRegistry.INSTANCE.unregister(this);
+    }
+}
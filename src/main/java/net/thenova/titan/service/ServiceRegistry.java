@@ -0,0 +1,167 @@
+package net.thenova.titan.service;
+
+import net.thenova.titan.module.ModuleClassLoader;
+import net.thenova.titan.module.ModuleManager;
+import net.thenova.titan.module.module.Module;
+import net.thenova.titan.module.module.ModuleInstance;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public enum ServiceRegistry {
+    INSTANCE;
+
+    // Cache key of lookups made from outside any module, these see every provider
+    private static final Object GLOBAL = new Object();
+
+    // Service type -> registrations, highest priority first, arrays are replaced on change and never modified
+    private final Map<Class<?>, ServiceRegistration<?>[]> registrations = new ConcurrentHashMap<>();
+    // Consumer module -> service type -> registrations visible to it, cleared whenever registrations change
+    private final Map<Object, Map<Class<?>, List<ServiceRegistration<?>>>> resolved = new ConcurrentHashMap<>();
+
+    /**
+     * Register a service with the default priority of 0
+     *
+     * @param module Module providing the service, the service is removed when the module shuts down
+     * @param type Type the service is looked up by, usually an interface
+     * @param service Implementation of the service
+     * @return Registration of the service
+     */
+    public <T> ServiceRegistration<T> register(final Module module, final Class<T> type, final T service) {
+        return this.register(module, type, service, 0);
+    }
+
+    /**
+     * Register a service, usually from Module.load() or Module.enable()
+     *
+     * @param module Module providing the service, null if provided by Titan or its host
+     * @param type Type the service is looked up by, usually an interface
+     * @param service Implementation of the service
+     * @param priority Priority of the service, the highest priority provider is returned by get
+     * @return Registration of the service
+     */
+    public <T> ServiceRegistration<T> register(final Module module, final Class<T> type, final T service, final int priority) {
+        final ServiceRegistration<T> registration = new ServiceRegistration<>(
+                module == null ? null : ModuleManager.INSTANCE.getInstance(module), type, service, priority);
+
+        this.registrations.compute(type, (key, existing) -> {
+            final List<ServiceRegistration<?>> updated = existing == null ? new ArrayList<>() : new ArrayList<>(Arrays.asList(existing));
+            updated.add(registration);
+            // Stable, so providers of the same priority keep their registration order
+            updated.sort(Comparator.comparingInt(ServiceRegistration<?>::getPriority).reversed());
+            return updated.toArray(new ServiceRegistration<?>[0]);
+        });
+
+        this.resolved.clear();
+        return registration;
+    }
+
+    /**
+     * Fetch the highest priority provider of a service visible to a module.
+     * A module sees services of Titan, of itself and of every module it depends on, directly or not.
+     *
+     * @param module Module looking up the service, null to see every provider
+     * @param type Type of the service
+     * @return Service or null if no visible module provides it
+     */
+    public <T> T get(final Module module, final Class<T> type) {
+        final List<ServiceRegistration<?>> visible = this.resolve(module, type);
+        return visible.isEmpty() ? null : type.cast(visible.get(0).getService());
+    }
+
+    /**
+     * Fetch every provider of a service visible to a module, highest priority first
+     *
+     * @param module Module looking up the service, null to see every provider
+     * @param type Type of the service
+     * @return Services, empty if no visible module provides it
+     */
+    public <T> List<T> getAll(final Module module, final Class<T> type) {
+        return this.resolve(module, type).stream()
+                .map(registration -> type.cast(registration.getService()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Remove a registration
+     *
+     * @param registration Registration to be removed
+     */
+    public void unregister(final ServiceRegistration<?> registration) {
+        this.remove(existing -> existing == registration);
+    }
+
+    /**
+     * Remove every service provided by a module
+     *
+     * @param instance Module which is shutting down
+     */
+    public void unregister(final ModuleInstance instance) {
+        this.remove(registration -> registration.getProvider() == instance);
+        this.resolved.remove(instance);
+    }
+
+    /**
+     * Remove every service referencing a released class loader, whether through its provider, type or implementation
+     *
+     * @param loader Loader being released
+     */
+    public void release(final ModuleClassLoader loader) {
+        this.remove(registration -> (registration.getProvider() != null && registration.getProvider().getLoader() == loader)
+                || registration.getType().getClassLoader() == loader
+                || registration.getService().getClass().getClassLoader() == loader);
+    }
+
+    private List<ServiceRegistration<?>> resolve(final Module module, final Class<?> type) {
+        final ModuleInstance consumer = module == null ? null : ModuleManager.INSTANCE.getInstance(module);
+        return this.resolved.computeIfAbsent(consumer == null ? GLOBAL : consumer, key -> new ConcurrentHashMap<>())
+                .computeIfAbsent(type, key -> {
+                    final ServiceRegistration<?>[] existing = this.registrations.get(type);
+                    if(existing == null) {
+                        return Collections.emptyList();
+                    }
+
+                    final Map<ModuleInstance, Integer> required = consumer == null
+                            ? Collections.emptyMap()
+                            : ModuleManager.INSTANCE.getGraph().getRequired(consumer);
+                    return Collections.unmodifiableList(Arrays.stream(existing)
+                            .filter(registration -> consumer == null
+                                    || registration.getProvider() == null
+                                    || registration.getProvider() == consumer
+                                    || required.containsKey(registration.getProvider()))
+                            .collect(Collectors.toList()));
+                });
+    }
+
+    private void remove(final Predicate<ServiceRegistration<?>> filter) {
+        final boolean[] changed = { false };
+        this.registrations.keySet().forEach(type -> this.registrations.computeIfPresent(type, (key, existing) -> {
+            final ServiceRegistration<?>[] kept = Arrays.stream(existing)
+                    .filter(filter.negate())
+                    .toArray(ServiceRegistration<?>[]::new);
+            changed[0] |= kept.length != existing.length;
+            return kept.length == 0 ? null : kept;
+        }));
+
+        if(changed[0]) {
+            this.resolved.clear();
+        }
+    }
+}
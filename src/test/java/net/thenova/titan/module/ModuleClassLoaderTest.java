@@ -0,0 +1,217 @@
+package net.thenova.titan.module;
+
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+import java.io.File;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.jar.JarEntry;
+import java.util.jar.JarOutputStream;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.*;
+import static org.junit.Assume.assumeNotNull;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public class ModuleClassLoaderTest {
+
+    private static final int CLASSES = 200;
+    private static final int THREADS = 16;
+    private static final long TIMEOUT = 30;
+    // Loading a class of the chain resolves and initialises every superclass below it on the same stack
+    private static final long STACK = 16 << 20;
+    private static final ThreadFactory THREAD_FACTORY = task -> new Thread(null, task, "titan-loader-test", STACK);
+
+    // Only sees the bootstrap classes, so every generated class has to come from the module jar
+    private static final ClassLoader PARENT = new ClassLoader(null) {};
+
+    private static Path directory;
+    private static File jar;
+
+    /**
+     * Compile a jar of classes extending each other in a chain, each also referencing an unrelated class of the chain
+     */
+    @BeforeClass
+    public static void createJar() throws IOException {
+        final JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+        assumeNotNull(compiler);
+
+        directory = Files.createTempDirectory("titan-loader-test");
+        final Path sources = Files.createDirectories(directory.resolve("src/stress"));
+        final Path classes = Files.createDirectories(directory.resolve("classes"));
+
+        final List<String> files = new ArrayList<>();
+        for(int i = 0; i < CLASSES; i++) {
+            final Path source = sources.resolve("C" + i + ".java");
+            Files.write(source, String.format("package stress; public class C%d %s { public static final Class<?> REF = C%d.class; }",
+                    i,
+                    i == 0 ? "" : "extends C" + (i - 1),
+                    (i * 7 + 3) % CLASSES).getBytes(StandardCharsets.UTF_8));
+            files.add(source.toString());
+        }
+
+        final List<String> arguments = new ArrayList<>(Arrays.asList("-d", classes.toString(), "-nowarn"));
+        arguments.addAll(files);
+        assertEquals(0, compiler.run(null, null, null, arguments.toArray(new String[0])));
+
+        jar = directory.resolve("stress.jar").toFile();
+        try (JarOutputStream output = new JarOutputStream(Files.newOutputStream(jar.toPath()));
+             Stream<Path> compiled = Files.walk(classes)) {
+            for(final Path path : compiled.filter(Files::isRegularFile).collect(Collectors.toList())) {
+                output.putNextEntry(new JarEntry(classes.relativize(path).toString().replace(File.separatorChar, '/')));
+                output.write(Files.readAllBytes(path));
+                output.closeEntry();
+            }
+        }
+    }
+
+    @AfterClass
+    public static void deleteJar() throws IOException {
+        if(directory == null) {
+            return;
+        }
+
+        try (Stream<Path> paths = Files.walk(directory)) {
+            paths.sorted(Comparator.reverseOrder())
+                    .map(Path::toFile)
+                    .forEach(File::delete);
+        }
+    }
+
+    /**
+     * Threads load and initialise the whole chain at once, starting from different ends so they race on every class
+     */
+    @Test
+    public void concurrentLoadsDefineEachClassOnce() throws Exception {
+        try (ModuleClassLoader loader = new ModuleClassLoader(jar.toURI().toURL(), PARENT)) {
+            final CyclicBarrier barrier = new CyclicBarrier(THREADS);
+            final List<Callable<Map<String, Class<?>>>> tasks = new ArrayList<>();
+            for(int t = 0; t < THREADS; t++) {
+                final int offset = t * (CLASSES / THREADS);
+                final boolean reverse = t % 2 == 1;
+                tasks.add(() -> {
+                    barrier.await();
+
+                    final Map<String, Class<?>> loaded = new HashMap<>();
+                    for(int i = 0; i < CLASSES; i++) {
+                        final int index = (reverse ? CLASSES - 1 - i + offset : i + offset) % CLASSES;
+                        final String name = "stress.C" + index;
+                        loaded.put(name, Class.forName(name, true, loader));
+                    }
+                    return loaded;
+                });
+            }
+
+            final List<Map<String, Class<?>>> results = this.runAll(tasks);
+
+            final Map<String, Class<?>> first = results.get(0);
+            assertEquals(CLASSES, first.size());
+            results.forEach(result -> result.forEach((name, clazz) -> {
+                assertSame(name, first.get(name), clazz);
+                assertSame(loader, clazz.getClassLoader());
+            }));
+            assertEquals(CLASSES, loader.getMetrics().getDefined());
+            assertEquals(0, loader.getMetrics().getMisses());
+        }
+    }
+
+    /**
+     * ClassLoader.loadClass would lock the whole loader, the override must not need the loader monitor at all
+     */
+    @Test
+    public void loadDoesNotLockLoader() throws Exception {
+        try (ModuleClassLoader loader = new ModuleClassLoader(jar.toURI().toURL(), PARENT)) {
+            final ExecutorService executor = Executors.newSingleThreadExecutor(THREAD_FACTORY);
+            try {
+                synchronized (loader) {
+                    final Future<Class<?>> future = executor.submit(() -> Class.forName("stress.C" + (CLASSES - 1), true, loader));
+                    assertEquals("stress.C" + (CLASSES - 1), future.get(TIMEOUT, TimeUnit.SECONDS).getName());
+                }
+            } finally {
+                executor.shutdownNow();
+            }
+        }
+    }
+
+    /**
+     * Two loaders of the same jar loaded from many threads at once, each keeping its own classes
+     */
+    @Test
+    public void loadersDoNotShareClasses() throws Exception {
+        try (ModuleClassLoader first = new ModuleClassLoader(jar.toURI().toURL(), PARENT);
+             ModuleClassLoader second = new ModuleClassLoader(jar.toURI().toURL(), PARENT)) {
+            final List<Callable<Map<String, Class<?>>>> tasks = new ArrayList<>();
+            for(int t = 0; t < THREADS; t++) {
+                final ModuleClassLoader loader = t % 2 == 0 ? first : second;
+                final int start = t;
+                tasks.add(() -> {
+                    final Map<String, Class<?>> loaded = new HashMap<>();
+                    for(int i = 0; i < CLASSES; i++) {
+                        final String name = "stress.C" + ((i * 31 + start) % CLASSES);
+                        loaded.put(name, loader.loadClass(name));
+                    }
+                    return loaded;
+                });
+            }
+
+            this.runAll(tasks).forEach(result -> result.values().forEach(clazz ->
+                    assertTrue(clazz.getClassLoader() == first || clazz.getClassLoader() == second)));
+            assertEquals(CLASSES, first.getMetrics().getDefined());
+            assertEquals(CLASSES, second.getMetrics().getDefined());
+            assertNotSame(first.loadClass("stress.C0"), second.loadClass("stress.C0"));
+        }
+    }
+
+    /**
+     * Run tasks on their own threads with stacks deep enough for the chain, failing with the deadlocked threads if they do not finish in time
+     *
+     * @param tasks Tasks to run
+     * @return Results in task order
+     */
+    private <T> List<T> runAll(final List<Callable<T>> tasks) throws Exception {
+        final ExecutorService executor = Executors.newFixedThreadPool(tasks.size(), THREAD_FACTORY);
+        try {
+            final List<Future<T>> futures = tasks.stream()
+                    .map(executor::submit)
+                    .collect(Collectors.toList());
+
+            final List<T> results = new ArrayList<>();
+            for(final Future<T> future : futures) {
+                try {
+                    results.add(future.get(TIMEOUT, TimeUnit.SECONDS));
+                } catch (final TimeoutException ex) {
+                    final long[] deadlocked = ManagementFactory.getThreadMXBean().findDeadlockedThreads();
+                    fail("Class loading did not finish, deadlocked threads: "
+                            + (deadlocked == null ? "none" : Arrays.toString(deadlocked)));
+                }
+            }
+            return results;
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,60 @@
+package net.thenova.titan.module;
+
+import net.thenova.titan.module.module.ModuleInstance;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public final class ModuleGraphBenchmark {
+
+    private static final int WARMUP = 5;
+    private static final int RUNS = 10;
+
+    /**
+     * Time resolving synthetic graphs of growing size, not run as part of the tests.
+     * Run with 'mvn test-compile exec:java -Dexec.mainClass=net.thenova.titan.module.ModuleGraphBenchmark -Dexec.classpathScope=test'
+     * A linear resolve takes about ten times longer for each size step, a quadratic one about a hundred times.
+     *
+     * @param args Sizes to resolve, defaults to 1k, 10k and 100k modules
+     */
+    public static void main(final String[] args) {
+        final int[] sizes = args.length == 0
+                ? new int[]{ 1_000, 10_000, 100_000 }
+                : Arrays.stream(args).mapToInt(Integer::parseInt).toArray();
+
+        double previous = 0;
+        for(final int size : sizes) {
+            final List<ModuleInstance> modules = ModuleGraphTest.synthetic(size);
+            for(int i = 0; i < WARMUP; i++) {
+                new ModuleGraph(modules);
+            }
+
+            final long start = System.nanoTime();
+            for(int i = 0; i < RUNS; i++) {
+                new ModuleGraph(modules);
+            }
+            final double took = (System.nanoTime() - start) / (RUNS * 1_000_000D);
+
+            System.out.printf("[ModuleGraphBenchmark] - %8d modules %10.2f ms %8s%n",
+                    size,
+                    took,
+                    previous == 0 ? "" : String.format("x%.1f", took / previous));
+            previous = took;
+        }
+    }
+}
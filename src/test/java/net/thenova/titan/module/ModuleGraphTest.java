@@ -0,0 +1,141 @@
+package net.thenova.titan.module;
+
+import de.arraying.kotys.JSON;
+import net.thenova.titan.module.module.ModuleInstance;
+import net.thenova.titan.module.module.data.ModuleDescriptionFile;
+import org.junit.Test;
+
+import java.util.*;
+import java.util.stream.Collectors;
+
+import static org.junit.Assert.*;
+
+/**
+ * Copyright 2020 ipr0james
+ * <p>
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ * <p>
+ * http://www.apache.org/licenses/LICENSE-2.0
+ * <p>
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+public class ModuleGraphTest {
+
+    private static final int DEPENDENCIES = 4;
+
+    @Test
+    public void ordersThousandModules() {
+        this.assertOrdered(1_000);
+    }
+
+    @Test
+    public void ordersTenThousandModules() {
+        this.assertOrdered(10_000);
+    }
+
+    @Test
+    public void reportsCycles() {
+        final List<ModuleInstance> modules = Arrays.asList(
+                ModuleGraphTest.module("base"),
+                ModuleGraphTest.module("a", "c"),
+                ModuleGraphTest.module("b", "a"),
+                ModuleGraphTest.module("c", "b", "base"),
+                ModuleGraphTest.module("d", "c"),
+                ModuleGraphTest.module("e", "base"));
+        final ModuleGraph graph = new ModuleGraph(modules);
+
+        assertEquals(Arrays.asList("base", "e"), names(graph.getOrdered()));
+        assertEquals(new HashSet<>(Arrays.asList("a", "b", "c", "d")), new HashSet<>(names(graph.getCyclic())));
+        // Only depending on the cycle does not make 'd' part of it
+        assertEquals(new HashSet<>(Arrays.asList("a", "b", "c")), new HashSet<>(names(graph.getCircular())));
+        assertTrue(graph.getIncomplete().isEmpty());
+    }
+
+    @Test
+    public void reportsMissing() {
+        final ModuleGraph graph = new ModuleGraph(Arrays.asList(ModuleGraphTest.module("a", "missing"), ModuleGraphTest.module("b")));
+
+        assertEquals(Collections.singleton("missing"), graph.getMissing(graph.get("A")));
+        assertEquals(Collections.singleton(graph.get("a")), graph.getIncomplete());
+    }
+
+    @Test
+    public void reportsCyclesBetweenCycles() {
+        // 'x' depends on the first cycle and the second cycle depends on 'x', it is on neither
+        final ModuleGraph graph = new ModuleGraph(Arrays.asList(
+                ModuleGraphTest.module("a", "b"),
+                ModuleGraphTest.module("b", "a"),
+                ModuleGraphTest.module("x", "a"),
+                ModuleGraphTest.module("y", "x", "z"),
+                ModuleGraphTest.module("z", "y"),
+                ModuleGraphTest.module("self", "self")));
+
+        assertEquals(new HashSet<>(Arrays.asList("a", "b", "x", "y", "z", "self")), new HashSet<>(names(graph.getCyclic())));
+        assertEquals(new HashSet<>(Arrays.asList("a", "b", "y", "z", "self")), new HashSet<>(names(graph.getCircular())));
+    }
+
+    /**
+     * Resolve a synthetic graph, checking every module lands in a later wave than its dependencies
+     *
+     * @param size Number of modules
+     */
+    private void assertOrdered(final int size) {
+        final List<ModuleInstance> modules = ModuleGraphTest.synthetic(size);
+        final ModuleGraph graph = new ModuleGraph(modules);
+
+        assertEquals(size, graph.getOrdered().size());
+        assertTrue(graph.getCyclic().isEmpty());
+
+        final Map<ModuleInstance, Integer> wave = new HashMap<>();
+        for(int i = 0; i < graph.getWaves().size(); i++) {
+            for(final ModuleInstance instance : graph.getWaves().get(i)) {
+                wave.put(instance, i);
+            }
+        }
+        modules.forEach(instance -> graph.getDependencies(instance)
+                .forEach(dependency -> assertTrue(wave.get(dependency) < wave.get(instance))));
+    }
+
+    /**
+     * Build modules where each depends on up to DEPENDENCIES random modules before it, seeded so runs are repeatable
+     *
+     * @param size Number of modules
+     * @return Modules in shuffled order
+     */
+    static List<ModuleInstance> synthetic(final int size) {
+        final Random random = new Random(size);
+        final List<ModuleInstance> modules = new ArrayList<>();
+        for(int i = 0; i < size; i++) {
+            final String[] dependencies = new String[i == 0 ? 0 : random.nextInt(DEPENDENCIES + 1)];
+            for(int j = 0; j < dependencies.length; j++) {
+                dependencies[j] = "module-" + random.nextInt(i);
+            }
+            modules.add(ModuleGraphTest.module("module-" + i, dependencies));
+        }
+
+        Collections.shuffle(modules, random);
+        return modules;
+    }
+
+    static ModuleInstance module(final String name, final String... dependencies) {
+        final String description = String.format("{\"name\": \"%s\", \"main\": \"%s.Main\", \"dependency\": [%s]}",
+                name,
+                name,
+                Arrays.stream(dependencies)
+                        .map(dependency -> "\"" + dependency + "\"")
+                        .collect(Collectors.joining(", ")));
+        return new ModuleInstance(null, new JSON(description).marshal(ModuleDescriptionFile.class), null);
+    }
+
+    private static List<String> names(final Collection<ModuleInstance> instances) {
+        return instances.stream()
+                .map(instance -> instance.getDescriptionFile().getName())
+                .collect(Collectors.toList());
+    }
+}